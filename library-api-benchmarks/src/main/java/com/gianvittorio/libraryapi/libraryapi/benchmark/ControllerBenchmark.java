@@ -0,0 +1,67 @@
+package com.gianvittorio.libraryapi.libraryapi.benchmark;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.resource.BookController;
+import com.gianvittorio.libraryapi.libraryapi.resource.LoanController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end listing endpoints: controller, service, repository and H2.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+    private static final Pageable PAGE_REQUEST = PageRequest.of(0, 20);
+
+    private BookController bookController;
+    private LoanController loanController;
+
+    private BookDTO bookFilter;
+    private LoanFilterDTO loanFilter;
+
+    @Setup
+    public void setUp(LibraryApiState state) {
+        bookController = state.getBean(BookController.class);
+        loanController = state.getBean(LoanController.class);
+
+        bookFilter = BookDTO.builder()
+                .title("Title 42")
+                .author("Author 42")
+                .build();
+
+        loanFilter = LoanFilterDTO.builder()
+                .isbn(LibraryApiState.isbn(41))
+                .customer("Customer 42")
+                .build();
+    }
+
+    @Benchmark
+    public Page<BookDTO> bookControllerFind() {
+        return bookController.find(bookFilter, PAGE_REQUEST);
+    }
+
+    @Benchmark
+    public Page<LoanDTO> loanControllerFind() {
+        return loanController.find(loanFilter, PAGE_REQUEST);
+    }
+}
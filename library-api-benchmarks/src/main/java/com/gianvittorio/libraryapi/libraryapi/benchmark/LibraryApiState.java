@@ -0,0 +1,117 @@
+package com.gianvittorio.libraryapi.libraryapi.benchmark;
+
+import com.gianvittorio.libraryapi.libraryapi.Application;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots library-api once per trial against an in-memory H2 database seeded with
+ * {@code books} books, every other one of them carrying an open loan.
+ */
+@State(Scope.Benchmark)
+public class LibraryApiState {
+    static final int SEED_BATCH_SIZE = 1_000;
+
+    @Param("10000")
+    public int books;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start(books);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    static ConfigurableApplicationContext start(int books, String... profiles) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                // the database is in-memory, so the search index must not outlive it
+                .profiles("in-memory")
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.boot.admin.client.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "logging.file.name=target/benchmark.log",
+                        "logging.level.root=WARN"
+                )
+                .run();
+
+        seed(context.getBean(BookRepository.class), context.getBean(LoanRepository.class), books);
+
+        return context;
+    }
+
+    private static void seed(BookRepository bookRepository, LoanRepository loanRepository, int books) {
+        List<Book> bookBatch = new ArrayList<>(SEED_BATCH_SIZE);
+        List<Loan> loanBatch = new ArrayList<>(SEED_BATCH_SIZE);
+
+        for (int i = 0; i < books; i++) {
+            bookBatch.add(newBook(i));
+
+            if (bookBatch.size() == SEED_BATCH_SIZE || i == books - 1) {
+                for (Book book : bookRepository.saveAll(bookBatch)) {
+                    if (book.getId() % 2 == 0) {
+                        loanBatch.add(newLoan(book));
+                    }
+                }
+                loanRepository.saveAll(loanBatch);
+
+                bookBatch.clear();
+                loanBatch.clear();
+            }
+        }
+    }
+
+    static Book newBook(int i) {
+        return Book.builder()
+                .title("Title " + i)
+                .author("Author " + (i % 100))
+                .isbn(isbn(i))
+                .build();
+    }
+
+    static Loan newLoan(Book book) {
+        return Loan.builder()
+                .book(book)
+                .customer("Customer " + (book.getId() % 1_000))
+                .customerEmail("customer" + (book.getId() % 1_000) + "@library-api.com")
+                .loanDate(LocalDate.now().minusDays(book.getId() % 10))
+                .build();
+    }
+
+    // the ISBN-13 978 followed by i, as only ISBNs with a valid check digit are looked up
+    static String isbn(long i) {
+        String body = String.format("%012d", 978_000_000_000L + i);
+
+        int sum = 0;
+        for (int digit = 0; digit < body.length(); digit++) {
+            sum += (body.charAt(digit) - '0') * (digit % 2 == 0 ? 1 : 3);
+        }
+
+        return body + (10 - sum % 10) % 10;
+    }
+}
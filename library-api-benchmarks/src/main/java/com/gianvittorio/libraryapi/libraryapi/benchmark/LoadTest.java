@@ -0,0 +1,213 @@
+package com.gianvittorio.libraryapi.libraryapi.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test of the book and loan listings. Each of {@code clients} simulated
+ * clients sends its next request as soon as the previous one completes.
+ * Run it once per mode on the same machine and JDK to compare platform and virtual threads:
+ *
+ * <pre>
+ * mvn compile exec:exec@load-test -Dload.args="mode=platform clients=2000 duration=30"
+ * mvn compile exec:exec@load-test -Dload.args="mode=virtual clients=2000 duration=30"
+ * </pre>
+ * <p>
+ * The clients share the JVM of the server, so memory and thread figures include them; they are
+ * the same in both modes, which keeps the comparison fair.
+ */
+public class LoadTest {
+    private static final int MAX_LATENCY_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String mode = options.getOrDefault("mode", "platform");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "2000"));
+        int books = Integer.parseInt(options.getOrDefault("books", "10000"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+
+        ConfigurableApplicationContext context = "virtual".equals(mode)
+                ? LibraryApiState.start(books, "virtual-threads")
+                : LibraryApiState.start(books);
+
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+
+            new LoadTest("http://localhost:" + port, clients, books).run(warmup);
+            System.out.println("Warm-up done, measuring for " + duration.getSeconds() + "s");
+
+            LoadTest loadTest = new LoadTest("http://localhost:" + port, clients, books);
+            Sampler sampler = new Sampler(dataSource);
+            sampler.start();
+            loadTest.run(duration);
+            sampler.stop();
+
+            loadTest.report(mode, duration, sampler);
+        } finally {
+            context.close();
+        }
+
+        System.exit(0);
+    }
+
+    private final String baseUrl;
+    private final int clients;
+    private final int books;
+
+    private final HttpClient httpClient;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(MAX_LATENCY_MILLIS + 1);
+
+    private LoadTest(String baseUrl, int clients, int books) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.books = books;
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private void run(Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int client = 0; client < clients; client++) {
+            send(client, 0, deadline, done);
+        }
+
+        done.await();
+    }
+
+    private void send(int client, long sequence, long deadline, CountDownLatch done) {
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+
+        long start = System.nanoTime();
+        httpClient.sendAsync(request(client, sequence), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.increment();
+                    } else {
+                        requests.increment();
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        latencies.incrementAndGet((int) Math.min(millis, MAX_LATENCY_MILLIS));
+                    }
+
+                    send(client, sequence + 1, deadline, done);
+                });
+    }
+
+    private HttpRequest request(int client, long sequence) {
+        int i = (int) ((client * 31 + sequence) % books);
+
+        String path = sequence % 2 == 0
+                ? "/api/v1/books?title=Title%20" + i + "&page=0&size=20"
+                : "/api/v1/loan?isbn=" + LibraryApiState.isbn(i) + "&customer=Customer%20" + (i % 1_000) + "&page=0&size=20";
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private void report(String mode, Duration duration, Sampler sampler) {
+        long total = requests.sum();
+
+        System.out.printf("mode                   %s%n", mode);
+        System.out.printf("clients                %d%n", clients);
+        System.out.printf("requests               %d (%d errors)%n", total, errors.sum());
+        System.out.printf("throughput             %.1f req/s%n", total / (double) duration.getSeconds());
+        System.out.printf("latency p50/p99/p99.9  %d / %d / %d ms%n",
+                percentile(total, 0.50), percentile(total, 0.99), percentile(total, 0.999));
+        System.out.printf("peak live threads      %d%n", sampler.peakThreads.get());
+        System.out.printf("peak heap used         %d MiB%n", sampler.peakHeapUsed.get() / (1024 * 1024));
+        System.out.printf("peak waiting for JDBC  %d%n", sampler.peakAwaitingConnection.get());
+    }
+
+    private long percentile(long total, double percentile) {
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+
+        for (int millis = 0; millis < latencies.length(); millis++) {
+            seen += latencies.get(millis);
+            if (seen >= rank) {
+                return millis;
+            }
+        }
+
+        return MAX_LATENCY_MILLIS;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        return options;
+    }
+
+    /**
+     * Samples threads, heap and Hikari queue length while the load runs.
+     */
+    private static class Sampler {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        private final HikariDataSource dataSource;
+
+        private final LongAccumulator peakThreads = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator peakHeapUsed = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator peakAwaitingConnection = new LongAccumulator(Math::max, 0);
+
+        Sampler(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void start() {
+            threads.resetPeakThreadCount();
+            scheduler.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+            peakThreads.accumulate(threads.getPeakThreadCount());
+        }
+
+        private void sample() {
+            peakHeapUsed.accumulate(memory.getHeapMemoryUsage().getUsed());
+            peakAwaitingConnection.accumulate(dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection());
+        }
+    }
+}
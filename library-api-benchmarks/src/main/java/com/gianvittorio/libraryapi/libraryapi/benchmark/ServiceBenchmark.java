@@ -0,0 +1,92 @@
+package com.gianvittorio.libraryapi.libraryapi.benchmark;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end writes: {@link BookService#save(Book)} and {@link LoanService#save(Loan)},
+ * including their duplicate checks.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ServiceBenchmark {
+    private BookService bookService;
+    private LoanService loanService;
+
+    private List<Book> books;
+    private long nextIsbn;
+    private int nextBook;
+
+    private Loan openLoan;
+    private Book loanedBook;
+
+    @Setup
+    public void setUp(LibraryApiState state) {
+        bookService = state.getBean(BookService.class);
+        loanService = state.getBean(LoanService.class);
+
+        // seeded loans are only open on even ids
+        books = state.getBean(BookRepository.class).findAll()
+                .stream()
+                .filter(book -> book.getId() % 2 != 0)
+                .collect(Collectors.toList());
+        nextIsbn = state.books;
+    }
+
+    /**
+     * Hands the previously loaned book back, so that every measured save hits an available book.
+     */
+    @Setup(Level.Invocation)
+    public void returnPreviousLoan() {
+        if (openLoan != null) {
+            openLoan.setReturned(true);
+            loanService.update(openLoan);
+        }
+
+        loanedBook = books.get(nextBook++ % books.size());
+    }
+
+    @Benchmark
+    public Book bookServiceSave() {
+        return bookService.save(
+                LibraryApiState.newBook((int) nextIsbn++)
+        );
+    }
+
+    @Benchmark
+    public Loan loanServiceSave() {
+        Loan loan = Loan.builder()
+                .book(loanedBook)
+                .customer("Benchmark")
+                .customerEmail("benchmark@library-api.com")
+                .loanDate(LocalDate.now())
+                .build();
+
+        openLoan = loanService.save(loan);
+
+        return openLoan;
+    }
+}
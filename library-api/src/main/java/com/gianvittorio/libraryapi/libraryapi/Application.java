@@ -1,38 +1,29 @@
 package com.gianvittorio.libraryapi.libraryapi;
 
-import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableCaching
 public class Application {
-    @Autowired
-    EmailService emailService;
-
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
 
     @Bean
-    public CommandLineRunner runner() {
-        return args -> {
-//            emailService.sendMail(
-//                    List.of("c36a3f12b5-fe3fcf@inbox.mailtrap.io"),
-//                    "Testing email service..."
-//            );
-//
-//            System.out.println("Email sent.");
-        };
+    BookMapper bookMapper() {
+        return Mappers.getMapper(BookMapper.class);
     }
 
     @Bean
-    ModelMapper createModelMapper() {
-        return new ModelMapper();
+    LoanMapper loanMapper() {
+        return Mappers.getMapper(LoanMapper.class);
     }
 }
@@ -2,6 +2,7 @@ package com.gianvittorio.libraryapi.libraryapi;
 
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
 import com.gianvittorio.libraryapi.libraryapi.exceptions.ApiErrors;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -9,10 +10,17 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
 
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
+    private final MeterRegistry meterRegistry;
+
+    public ApplicationControllerAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleValidationExceptions(MethodArgumentNotValidException e) {
@@ -21,9 +29,20 @@ public class ApplicationControllerAdvice {
         return new ApiErrors(bindingResult);
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors handleWebExchangeBindException(WebExchangeBindException e) {
+        BindingResult bindingResult = e.getBindingResult();
+
+        return new ApiErrors(bindingResult);
+    }
+
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleBusinessException(BusinessException e) {
+        meterRegistry.counter("library.business.errors", "message", e.getMessage())
+                .increment();
+
         return new ApiErrors(e);
     }
 
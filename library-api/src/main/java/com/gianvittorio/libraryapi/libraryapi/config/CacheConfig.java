@@ -0,0 +1,34 @@
+package com.gianvittorio.libraryapi.libraryapi.config;
+
+import com.gianvittorio.libraryapi.libraryapi.service.impl.BookServiceImpl;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+    /**
+     * Search results hold whole pages, so their cache is bounded by the number of books it holds
+     * rather than by spring.cache.caffeine.spec, which counts entries.
+     */
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> bookSearchesCacheCustomizer(
+            @Value("${application.books.search-cache.max-books:100000}") long maxBooks,
+            @Value("${application.books.search-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        return cacheManager -> cacheManager.registerCustomCache(
+                BookServiceImpl.BOOK_SEARCHES_CACHE,
+                Caffeine.newBuilder()
+                        .maximumWeight(maxBooks)
+                        .weigher((key, value) -> value instanceof Page ? ((Page<?>) value).getNumberOfElements() + 1 : 1)
+                        .expireAfterWrite(expireAfterWrite)
+                        .recordStats()
+                        .build()
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package com.gianvittorio.libraryapi.libraryapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Period;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loan periods, under {@code application.loan.period}. A period set for the book wins over one
+ * set for the customer type, which wins over the default.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "application.loan.period")
+public class LoanPeriodProperties {
+    private Period defaultPeriod = Period.ofDays(4);
+
+    /**
+     * Periods by book ISBN.
+     */
+    private Map<String, Period> byIsbn = new HashMap<>();
+
+    /**
+     * Periods by customer type, which is told by the domain of the customer's e-mail address.
+     */
+    private Map<String, Period> byEmailDomain = new HashMap<>();
+}
@@ -0,0 +1,77 @@
+package com.gianvittorio.libraryapi.libraryapi.config;
+
+import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricsConfig {
+    /**
+     * Times the {@link Query} methods of every repository, tagged by repository, method and
+     * outcome. Derived queries and the CRUD methods are left out.
+     */
+    @Bean
+    static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    RepositoryMethodInvocationListener listener = new QueryTimingListener(meterRegistry);
+
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(
+                            factory -> factory.addInvocationListener(listener)
+                    );
+                }
+
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder loanGauges(LoanService loanService) {
+        return registry -> {
+            Gauge.builder("library.loans.open", loanService, LoanService::countOpenLoans)
+                    .description("Loans whose book has not been returned yet")
+                    .register(registry);
+            Gauge.builder("library.loans.overdue", loanService, LoanService::countLateLoans)
+                    .description("Open loans past their loan period")
+                    .register(registry);
+        };
+    }
+
+    private static class QueryTimingListener implements RepositoryMethodInvocationListener {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        QueryTimingListener(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void afterInvocation(RepositoryMethodInvocation invocation) {
+            if (!AnnotatedElementUtils.hasAnnotation(invocation.getMethod(), Query.class)) {
+                return;
+            }
+
+            meterRegistry.ifAvailable(registry -> Timer.builder("library.repository.queries")
+                    .description("Execution time of repository queries")
+                    .tag("repository", invocation.getRepositoryInterface().getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("state", invocation.getResult().getState().name().toLowerCase())
+                    .register(registry)
+                    .record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+        }
+    }
+}
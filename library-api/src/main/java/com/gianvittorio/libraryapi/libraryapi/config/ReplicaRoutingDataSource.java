@@ -0,0 +1,86 @@
+package com.gianvittorio.libraryapi.libraryapi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to the replica and everything else to the primary. A client
+ * which has just written is kept on the primary for {@code maxStaleness}, the replication lag
+ * allowed for, so it reads its own writes. Clients are told apart by their {@value #CLIENT_HEADER}
+ * header, or by their remote address without one; behind a proxy, that is only the client's own
+ * with {@code server.forward-headers-strategy} set, or else every client shares the proxy's.
+ * <p>
+ * The route is picked as a connection is fetched, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches it
+ * once the transaction has started.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxStaleness) {
+        recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxStaleness)
+                .build();
+
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route();
+    }
+
+    Route route() {
+        String client = client();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (client != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(client, Boolean.TRUE);
+                    }
+                });
+            }
+
+            return Route.PRIMARY;
+        }
+
+        return client != null && recentWriters.getIfPresent(client) != null
+                ? Route.PRIMARY
+                : Route.REPLICA;
+    }
+
+    private static String client() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes) {
+            HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
+                    .getRequest();
+
+            String clientId = request.getHeader(CLIENT_HEADER);
+            return clientId == null || clientId.isBlank()
+                    ? request.getRemoteAddr()
+                    : CLIENT_HEADER + ":" + clientId;
+        }
+
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gianvittorio.libraryapi.libraryapi.dto;
 
+import com.gianvittorio.libraryapi.libraryapi.validation.ValidIsbn;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,5 +24,6 @@ public class BookDTO {
     private String author;
 
     @NotBlank
+    @ValidIsbn
     private String isbn;
 }
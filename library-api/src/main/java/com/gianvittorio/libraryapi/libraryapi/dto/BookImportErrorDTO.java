@@ -0,0 +1,18 @@
+package com.gianvittorio.libraryapi.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+    private long line;
+
+    private String isbn;
+
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.gianvittorio.libraryapi.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReportDTO {
+    private long received;
+
+    private long imported;
+
+    private List<BookImportErrorDTO> errors;
+}
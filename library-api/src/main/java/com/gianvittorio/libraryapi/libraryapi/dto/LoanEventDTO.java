@@ -0,0 +1,38 @@
+package com.gianvittorio.libraryapi.libraryapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEventDTO {
+    public enum Type {
+        LOAN_CREATED,
+        LOAN_RETURNED
+    }
+
+    private Long eventId;
+
+    private Type type;
+
+    private Long loanId;
+
+    private String isbn;
+
+    private String customer;
+
+    private String customerEmail;
+
+    private LocalDate loanDate;
+
+    private LocalDate dueDate;
+
+    private LocalDateTime occurredAt;
+}
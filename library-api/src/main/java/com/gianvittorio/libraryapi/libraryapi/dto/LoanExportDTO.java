@@ -0,0 +1,33 @@
+package com.gianvittorio.libraryapi.libraryapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Flat row of the loan history export, with the book reduced to its id and isbn.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"id", "customer", "email", "loanDate", "returned", "bookId", "isbn"})
+public class LoanExportDTO {
+    private Long id;
+
+    private String customer;
+
+    private String email;
+
+    private LocalDate loanDate;
+
+    private Boolean returned;
+
+    private Long bookId;
+
+    private String isbn;
+}
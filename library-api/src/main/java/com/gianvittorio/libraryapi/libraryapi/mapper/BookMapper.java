@@ -0,0 +1,15 @@
+package com.gianvittorio.libraryapi.libraryapi.mapper;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper
+public interface BookMapper {
+    BookDTO toDto(Book book);
+
+    @Mapping(target = "loans", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookDTO dto);
+}
@@ -0,0 +1,40 @@
+package com.gianvittorio.libraryapi.libraryapi.mapper;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanExportDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(uses = BookMapper.class)
+public interface LoanMapper {
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "email", source = "customerEmail")
+    LoanDTO toDto(Loan loan);
+
+    /**
+     * Maps a loan of an already known book, without touching {@link Loan#getBook()}.
+     */
+    @Mapping(target = "id", source = "loan.id")
+    @Mapping(target = "customer", source = "loan.customer")
+    @Mapping(target = "email", source = "loan.customerEmail")
+    @Mapping(target = "dueDate", source = "loan.dueDate")
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "book", source = "book")
+    LoanDTO toDto(Loan loan, BookDTO book);
+
+    @Mapping(target = "email", source = "customerEmail")
+    @Mapping(target = "bookId", source = "book.id")
+    @Mapping(target = "isbn", source = "book.isbn")
+    LoanExportDTO toExportDto(Loan loan);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "customerEmail", source = "email")
+    @Mapping(target = "book", ignore = true)
+    @Mapping(target = "loanDate", ignore = true)
+    @Mapping(target = "dueDate", ignore = true)
+    @Mapping(target = "returned", ignore = true)
+    @Mapping(target = "activeBookId", ignore = true)
+    Loan toEntity(LoanDTO dto);
+}
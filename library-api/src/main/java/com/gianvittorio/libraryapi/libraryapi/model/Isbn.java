@@ -0,0 +1,140 @@
+package com.gianvittorio.libraryapi.libraryapi.model;
+
+import java.io.Serializable;
+
+/**
+ * An ISBN, held as its ISBN-13 packed into a long. ISBN-10s stand for the ISBN-13 with the 978
+ * prefix, and hyphens and spaces are ignored, so every spelling of a book's ISBN packs the same.
+ * <p>
+ * {@link #pack} parses and checks the digits without allocating, for the paths which only need
+ * to know whether an ISBN is well-formed, or a compact key for it.
+ */
+public final class Isbn implements Comparable<Isbn>, Serializable {
+    /**
+     * Packed value of anything which is not a valid ISBN.
+     */
+    public static final long INVALID = -1;
+
+    private static final long PREFIX_978 = 978_000_000_000L;
+    // 9·1 + 7·3 + 8·1, the 978 prefix's part of an ISBN-13 checksum
+    private static final int PREFIX_978_SUM = 38;
+
+    private final long value;
+
+    private Isbn(long value) {
+        this.value = value;
+    }
+
+    public static Isbn of(CharSequence isbn) {
+        long value = pack(isbn);
+        if (value == INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN: " + isbn);
+        }
+
+        return new Isbn(value);
+    }
+
+    public static boolean isValid(CharSequence isbn) {
+        return pack(isbn) != INVALID;
+    }
+
+    /**
+     * The ISBN-13 digits of a valid ISBN, or the given value as it is otherwise.
+     */
+    public static String normalize(String isbn) {
+        long value = pack(isbn);
+
+        return value == INVALID ? isbn : Long.toString(value);
+    }
+
+    /**
+     * The ISBN-13 of a valid ISBN-10 or ISBN-13 as a number, or {@link #INVALID}.
+     */
+    public static long pack(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int isbn10Sum = 0, isbn13Sum = 0, prefixedSum = PREFIX_978_SUM;
+        boolean checkX = false;
+
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+
+            int digit;
+            if (c >= '0' && c <= '9' && !checkX) {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                // only as the check digit of an ISBN-10
+                digit = 10;
+                checkX = true;
+            } else {
+                return INVALID;
+            }
+
+            if (digits == 13) {
+                return INVALID;
+            }
+
+            isbn10Sum += digit * (10 - digits);
+            isbn13Sum += digit * (digits % 2 == 0 ? 1 : 3);
+            if (digits < 9) {
+                // weights of the same digit once behind the 978 prefix
+                prefixedSum += digit * (digits % 2 == 0 ? 3 : 1);
+                value = value * 10 + digit;
+            } else if (!checkX) {
+                value = value * 10 + digit;
+            }
+            digits++;
+        }
+
+        if (digits == 10) {
+            if (isbn10Sum % 11 != 0) {
+                return INVALID;
+            }
+
+            // the first nine digits, behind the 978 prefix and followed by the ISBN-13 check digit
+            long body = PREFIX_978 + value / (checkX ? 1 : 10);
+            return body * 10 + (10 - prefixedSum % 10) % 10;
+        }
+
+        if (digits == 13 && !checkX && isbn13Sum % 10 == 0) {
+            long prefix = value / 10_000_000_000L;
+            return prefix == 978 || prefix == 979 ? value : INVALID;
+        }
+
+        return INVALID;
+    }
+
+    public long toLong() {
+        return value;
+    }
+
+    @Override
+    public int compareTo(Isbn other) {
+        return Long.compare(value, other.value);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Isbn && ((Isbn) other).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    /**
+     * The ISBN-13 digits.
+     */
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
@@ -3,7 +3,12 @@ package com.gianvittorio.libraryapi.libraryapi.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
 import javax.persistence.*;
 import java.util.Set;
@@ -14,21 +19,43 @@ import java.util.Set;
 @NoArgsConstructor
 @Entity
 @Table
+@Indexed
 public class Book {
+    /**
+     * Unique index on {@code isbn}, created by the V2 migration.
+     */
+    public static final String ISBN_CONSTRAINT = "uk_book_isbn";
+
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_sequence")
+    @SequenceGenerator(name = "book_sequence", sequenceName = "book_sequence", allocationSize = 50)
     private Long id;
 
     @Column
+    @FullTextField
     private String title;
 
     @Column
+    @FullTextField
     private String author;
 
     @Column
+    @KeywordField
+    @Convert(converter = IsbnConverter.class)
     private String isbn;
 
+    /**
+     * Incremented on every update, so stale copies are rejected and clients can send it back
+     * as an ETag.
+     */
+    @Version
+    @Column
+    private Long version;
+
+    // books are cached detached, so the lazy collection must never be touched implicitly
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "book")
     private Set<Loan> loans;
 }
@@ -0,0 +1,24 @@
+package com.gianvittorio.libraryapi.libraryapi.model.entity;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores valid ISBNs as their ISBN-13 digits, so each book has a single spelling to match on and
+ * the unique isbn index also catches an ISBN-10 and the ISBN-13 of the same book. Anything else,
+ * such as the like patterns of the filters, is passed as it is.
+ */
+@Converter
+public class IsbnConverter implements AttributeConverter<String, String> {
+    @Override
+    public String convertToDatabaseColumn(String isbn) {
+        return Isbn.normalize(isbn);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String isbn) {
+        return isbn;
+    }
+}
@@ -15,6 +15,11 @@ import java.time.LocalDate;
 @Entity
 @Table
 public class Loan {
+    /**
+     * Unique constraint on {@code active_book_id}, created by the V1 migration.
+     */
+    public static final String ACTIVE_BOOK_CONSTRAINT = "uk_loan_active_book";
+
     @Id
     @Column
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,15 +29,34 @@ public class Loan {
     private String customer;
 
     @JoinColumn(name = "id_book")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     @Column
     private LocalDate loanDate;
 
+    /**
+     * Last day to return the book on, set as the loan is created; the loan is late afterwards.
+     */
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
     @Column
     private Boolean returned;
 
     @Column(name = "customer_email")
     private String customerEmail;
+
+    /**
+     * Holds the book id while the loan is open and null once it is returned, so the unique
+     * constraint on this column allows a single open loan per book.
+     */
+    @Column(name = "active_book_id")
+    private Long activeBookId;
+
+    @PrePersist
+    @PreUpdate
+    public void markActiveBook() {
+        activeBookId = book == null || Boolean.TRUE.equals(returned) ? null : book.getId();
+    }
 }
@@ -0,0 +1,44 @@
+package com.gianvittorio.libraryapi.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Loan event written in the transaction changing the loan, so it is relayed if and only if that
+ * change commits.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 50)
+    private String type;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    @Column(length = 2000)
+    private String payload;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column
+    private Integer attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -1,14 +1,79 @@
 package com.gianvittorio.libraryapi.libraryapi.model.repository;
 
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
+    /**
+     * Rows fetched per round trip while streaming, so exports never hold the whole table.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
 
-//    Page<Loan> findByBook(Book , org.springframework.data.domain.Pageable );
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query(value = "select b.isbn from Book as b where b.isbn in :isbns")
+    Set<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    @Query(
+            value = "select b from Book as b where b.id > :after and " +
+                    "(:title is null or lower(b.title) like lower(concat('%', :title, '%'))) and " +
+                    "(:author is null or lower(b.author) like lower(concat('%', :author, '%'))) and " +
+                    "(:isbn is null or lower(b.isbn) like lower(concat('%', :isbn, '%'))) " +
+                    "order by b.id"
+    )
+    Slice<Book> findByFilterAfter(
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("after") long after,
+            Pageable pageRequest);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = "select b from Book as b order by b.id")
+    Stream<Book> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = "select b.isbn from Book as b")
+    Stream<String> streamIsbns();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = "select b.id as id, b.isbn as isbn from Book as b")
+    Stream<IndexedIsbn> streamIndexedIsbns();
+
+    /**
+     * The invalid ISBNs stored before ISBNs were validated, flagged by the V7 migration.
+     */
+    @Query(value = "select isbn from book where legacy_isbn = true", nativeQuery = true)
+    List<String> findLegacyIsbns();
+
+    @Query(value = "select max(b.id) from Book as b")
+    Long findMaxId();
 }
@@ -0,0 +1,7 @@
+package com.gianvittorio.libraryapi.libraryapi.model.repository;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.EmailDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EmailDeadLetterRepository extends JpaRepository<EmailDeadLetter, Long> {
+}
@@ -0,0 +1,10 @@
+package com.gianvittorio.libraryapi.libraryapi.model.repository;
+
+/**
+ * Projection of a book holding only what the ISBN index maps.
+ */
+public interface IndexedIsbn {
+    Long getId();
+
+    String getIsbn();
+}
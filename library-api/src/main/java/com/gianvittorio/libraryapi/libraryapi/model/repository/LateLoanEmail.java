@@ -0,0 +1,10 @@
+package com.gianvittorio.libraryapi.libraryapi.model.repository;
+
+/**
+ * Projection of a late loan holding only what the overdue notice needs.
+ */
+public interface LateLoanEmail {
+    Long getId();
+
+    String getCustomerEmail();
+}
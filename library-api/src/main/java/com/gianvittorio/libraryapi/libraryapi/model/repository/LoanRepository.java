@@ -4,12 +4,24 @@ import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
     @Query(
@@ -19,14 +31,102 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     )
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
+    @Query(
+            value = "select l from Loan as l where l.book = :book order by l.loanDate desc",
+            countQuery = "select count(l) from Loan as l where l.book = :book"
+    )
+    Page<Loan> findByBook(@Param("book") Book book, Pageable pageRequest);
+
+    @EntityGraph(attributePaths = "book")
     @Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
     Page<Loan> findByBookIsbnOrCustomer(
             @Param("isbn") String isbn,
             @Param("customer") String customer,
             Pageable pageRequest);
 
+    @EntityGraph(attributePaths = "book")
+    @Query(
+            value = "select l from Loan as l join l.book as b where l.id > :after and " +
+                    "(b.isbn = :isbn or l.customer = :customer) order by l.id"
+    )
+    Slice<Loan> findByBookIsbnOrCustomerAfter(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer,
+            @Param("after") long after,
+            Pageable pageRequest);
+
+    /**
+     * Loans due before the given date, which have not been returned; a range scan on
+     * {@code idx_loan_due_date_returned}.
+     */
     @Query(
-            value = "select l from Loan as l where l.loanDate <= :given_date and " +
+            value = "select l from Loan as l where l.dueDate < :today and " +
                     "(l.returned = null or l.returned is false)")
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("given_date") LocalDate threeDaysAgo);
+    List<Loan> findByDueDateBeforeAndNotReturned(@Param("today") LocalDate today);
+
+    @EntityGraph(attributePaths = "book")
+    @Query(
+            value = "select l from Loan as l where l.dueDate < :today and " +
+                    "(l.returned = null or l.returned is false) order by l.dueDate, l.id",
+            countQuery = "select count(l) from Loan as l where l.dueDate < :today and " +
+                    "(l.returned = null or l.returned is false)")
+    Page<Loan> findOverdue(@Param("today") LocalDate today, Pageable pageRequest);
+
+    /**
+     * Counts through {@code active_book_id}, which is only set on open loans and is indexed by
+     * their unique constraint.
+     */
+    @Query(value = "select count(l.activeBookId) from Loan as l")
+    long countOpen();
+
+    @Query(
+            value = "select count(l) from Loan as l where l.dueDate < :today and " +
+                    "(l.returned = null or l.returned is false)")
+    long countDueDateBeforeAndNotReturned(@Param("today") LocalDate today);
+
+    @Query(
+            value = "select l.id as id, l.customerEmail as customerEmail from Loan as l " +
+                    "where l.dueDate < :today and (l.returned = null or l.returned is false) " +
+                    "and l.id > :after order by l.id")
+    List<LateLoanEmail> findLateLoanEmailsAfter(
+            @Param("today") LocalDate today,
+            @Param("after") long after,
+            Pageable pageable
+    );
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = BookRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = "select l from Loan as l join fetch l.book order by l.id")
+    Stream<Loan> streamAllWithBook();
+
+    /**
+     * Locks the given loans, so their state holds until the batch return updating them commits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+            value = "select l.id as id, b.isbn as isbn, l.customer as customer, l.customerEmail as customerEmail, " +
+                    "l.activeBookId as activeBookId " +
+                    "from Loan as l join l.book as b where l.id in :ids")
+    List<ReturnableLoan> findReturnableByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+            value = "select l.id as id, b.isbn as isbn, l.customer as customer, l.customerEmail as customerEmail, " +
+                    "l.activeBookId as activeBookId " +
+                    "from Loan as l join l.book as b where b.isbn in :isbns and l.activeBookId is not null")
+    List<ReturnableLoan> findOpenReturnableByBookIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Query(value = "select distinct b.isbn from Loan as l join l.book as b where b.isbn in :isbns")
+    List<String> findLoanedIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Returns the given open loans in a single statement, bypassing the persistence context.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            value = "update Loan as l set l.returned = true, l.activeBookId = null " +
+                    "where l.id in :ids and l.activeBookId is not null")
+    int markReturned(@Param("ids") Collection<Long> ids);
 }
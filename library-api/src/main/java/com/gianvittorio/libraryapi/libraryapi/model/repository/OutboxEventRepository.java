@@ -0,0 +1,29 @@
+package com.gianvittorio.libraryapi.libraryapi.model.repository;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    /**
+     * Events still to be relayed, oldest first; those out of attempts stay behind as dead letters.
+     */
+    @Query(value = "select e from OutboxEvent as e where e.attempts < :max_attempts order by e.id")
+    List<OutboxEvent> findPending(@Param("max_attempts") int maxAttempts, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from OutboxEvent as e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(
+            value = "update OutboxEvent as e set e.attempts = e.attempts + 1, e.lastError = :last_error " +
+                    "where e.id in :ids")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("last_error") String lastError);
+}
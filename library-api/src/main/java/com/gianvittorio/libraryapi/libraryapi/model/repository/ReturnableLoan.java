@@ -0,0 +1,17 @@
+package com.gianvittorio.libraryapi.libraryapi.model.repository;
+
+/**
+ * Projection of a loan holding only what a batch return needs; the loan is open while
+ * {@code activeBookId} is set.
+ */
+public interface ReturnableLoan {
+    Long getId();
+
+    String getIsbn();
+
+    String getCustomer();
+
+    String getCustomerEmail();
+
+    Long getActiveBookId();
+}
@@ -1,59 +1,112 @@
 package com.gianvittorio.libraryapi.libraryapi.resource;
 
 import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.CursorPageDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.BookImportService;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/books")
 @AllArgsConstructor
 @Api("Books API")
 @Slf4j
 public class BookController {
+    private static final String MODIFIED = "Book has been modified since it was read!";
+
     private final BookService service;
-    private final ModelMapper modelMapper;
+    private final BookImportService importService;
+    private final ExportService exportService;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
 
     @PostMapping
     @ApiOperation("Create a book")
     public ResponseEntity<BookDTO> create(@RequestBody @Valid BookDTO dto) {
         log.info("Creating a book for isbn {}", dto.getIsbn());
 
-        Book entity = service.save(modelMapper.map(dto, Book.class));
+        Book entity = service.save(bookMapper.toEntity(dto));
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(modelMapper.map(entity, BookDTO.class));
+                .body(bookMapper.toDto(entity));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @ApiOperation("Imports books in bulk from newline delimited JSON")
+    public BookImportReportDTO importNdjson(HttpServletRequest request) throws IOException {
+        log.info("Importing books from NDJSON");
+
+        return importService.importBooks(request.getReader(), BookImportService.Format.NDJSON);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @ApiOperation("Imports books in bulk from CSV with a title,author,isbn header")
+    public BookImportReportDTO importCsv(HttpServletRequest request) throws IOException {
+        log.info("Importing books from CSV");
+
+        return importService.importBooks(request.getReader(), BookImportService.Format.CSV);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @ApiOperation("Exports the whole catalog as newline delimited JSON")
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        return export(ExportService.Format.NDJSON, "application/x-ndjson", "books.ndjson");
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    @ApiOperation("Exports the whole catalog as CSV with a header line")
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        return export(ExportService.Format.CSV, "text/csv", "books.csv");
     }
 
     @GetMapping(value = "/{id}", produces = "application/json")
-    @ApiOperation("Obtains book details referred to by id")
-    public ResponseEntity<BookDTO> get(@PathVariable Long id) {
+    @ApiOperation("Obtains book details referred to by id, or 304 if the If-None-Match ETag is current")
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, WebRequest request) {
         log.info("Obtaining details for book id {}", id);
 
-        BookDTO book = service.getById(id)
-                .map(b -> modelMapper.map(b, BookDTO.class))
+        Book book = service.getById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
-        return ResponseEntity.ok(modelMapper.map(book, BookDTO.class));
+        if (request.checkNotModified(eTag(book))) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(eTag(book))
+                .body(bookMapper.toDto(book));
     }
 
     @GetMapping
@@ -63,19 +116,60 @@ public class BookController {
             BookDTO dto,
             Pageable pageRequest
     ) {
-        Book book = modelMapper.map(dto, Book.class);
+        Book book = bookMapper.toEntity(dto);
 
         Page<Book> res = service.find(book, pageRequest);
 
         List<BookDTO> bookDTOs = res.getContent()
                 .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDto)
                 .collect(Collectors.toList());
 
         return new PageImpl<BookDTO>(bookDTOs, pageRequest, res.getTotalElements());
 
     }
 
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("Find books by params, paging by cursor instead of page number")
+    public CursorPageDTO<BookDTO> findByCursor(
+            BookDTO dto,
+            @RequestParam String cursor,
+            Pageable pageRequest
+    ) {
+        Book book = bookMapper.toEntity(dto);
+
+        Slice<Book> res = service.findAfter(book, Cursor.decode(cursor), pageRequest.getPageSize());
+
+        List<BookDTO> bookDTOs = res.getContent()
+                .stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList());
+
+        return CursorPageDTO.<BookDTO>builder()
+                .content(bookDTOs)
+                .size(res.getSize())
+                .next(res.hasNext() ? Cursor.encode(bookDTOs.get(bookDTOs.size() - 1).getId()) : null)
+                .build();
+    }
+
+    @GetMapping(params = "q")
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("Full-text search of books by title and author, best matches first")
+    public Page<BookDTO> search(
+            @RequestParam String q,
+            Pageable pageRequest
+    ) {
+        Page<Book> res = service.search(q, pageRequest);
+
+        List<BookDTO> bookDTOs = res.getContent()
+                .stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList());
+
+        return new PageImpl<BookDTO>(bookDTOs, pageRequest, res.getTotalElements());
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiOperation("Deletes book referred to by id")
@@ -94,22 +188,45 @@ public class BookController {
     }
 
     @PutMapping("{id}")
-    @ApiOperation("Updates book referred to by id")
-    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO bookDTO) {
+    @ApiOperation("Updates book referred to by id, if it still matches the If-Match ETag when given")
+    @ApiResponses(
+            {
+                    @ApiResponse(code = 412, message = "Book modified since the If-Match ETag was read")
+            }
+    )
+    public ResponseEntity<BookDTO> update(
+            @PathVariable Long id,
+            @RequestBody BookDTO bookDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
         log.info("Updating details for book referred to by id {}", id);
 
-        BookDTO responseDTO = service.getById(id)
-                .map(b -> {
-                    b.setAuthor(bookDTO.getAuthor());
-                    b.setTitle(bookDTO.getTitle());
+        Book current = service.getById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        boolean conditional = ifMatch != null && !"*".equals(ifMatch.trim());
 
-                    b = service.update(b);
+        // a copy, as the book read may be the cached instance; the update checks the version,
+        // so a concurrent change after the read is caught as well
+        Book book = Book.builder()
+                .id(current.getId())
+                .isbn(current.getIsbn())
+                .author(bookDTO.getAuthor())
+                .title(bookDTO.getTitle())
+                .version(conditional ? version(ifMatch) : current.getVersion())
+                .build();
 
-                    return modelMapper.map(b, BookDTO.class);
-                })
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        try {
+            book = service.update(book);
+        } catch (OptimisticLockingFailureException e) {
+            throw conditional
+                    ? new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, MODIFIED)
+                    : new ResponseStatusException(HttpStatus.CONFLICT, "Book has been modified concurrently!");
+        }
 
-        return ResponseEntity.ok(responseDTO);
+        return ResponseEntity.ok()
+                .eTag(eTag(book))
+                .body(bookMapper.toDto(book));
     }
 
     @GetMapping("/{id}/loans")
@@ -120,19 +237,43 @@ public class BookController {
 
         Page<Loan> loans = service.getLoansByBook(book, pageable);
 
+        BookDTO bookDTO = bookMapper.toDto(book);
+
         List<LoanDTO> loanDTOS = loans.getContent()
                 .stream()
-                .map(loan -> {
-                            BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
-                            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-
-                            loanDTO.setBook(bookDTO);
-
-                            return loanDTO;
-                        }
-                )
+                .map(loan -> loanMapper.toDto(loan, bookDTO))
                 .collect(Collectors.toList());
 
         return new PageImpl<>(loanDTOS, pageable, loans.getTotalElements());
     }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportService.Format format, String contentType, String filename) {
+        log.info("Exporting books as {}", format);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(out -> exportService.exportBooks(out, format));
+    }
+
+    private static String eTag(Book book) {
+        return "\"" + book.getVersion() + "\"";
+    }
+
+    /**
+     * Reads the version out of an If-Match ETag; a malformed ETag never matches.
+     */
+    private static Long version(String ifMatch) {
+        String eTag = ifMatch.trim();
+
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, MODIFIED);
+        }
+
+        try {
+            return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, MODIFIED);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.gianvittorio.libraryapi.libraryapi.resource;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination, wrapping the id of the last row served.
+ */
+final class Cursor {
+    static final long FIRST = 0L;
+
+    private Cursor() {
+    }
+
+    static String encode(Long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+
+        try {
+            return Long.parseLong(
+                    new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+            );
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor!");
+        }
+    }
+}
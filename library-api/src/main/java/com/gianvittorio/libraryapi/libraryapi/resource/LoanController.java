@@ -1,33 +1,44 @@
 package com.gianvittorio.libraryapi.libraryapi.resource;
 
-import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.CursorPageDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnRequestDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.ReturnedLoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
 import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/loan")
 @RequiredArgsConstructor
 public class LoanController {
     private final LoanService loanService;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ExportService exportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -40,11 +51,9 @@ public class LoanController {
                         )
                 );
 
-        Loan entity = Loan.builder()
-                .book(book)
-                .customer(dto.getCustomer())
-                .loanDate(LocalDate.now())
-                .build();
+        Loan entity = loanMapper.toEntity(dto);
+        entity.setBook(book);
+        entity.setLoanDate(LocalDate.now());
 
         entity = loanService.save(entity);
 
@@ -67,6 +76,12 @@ public class LoanController {
         loanService.update(loan);
     }
 
+    @PostMapping("/returns")
+    @ResponseStatus(HttpStatus.OK)
+    public LoanReturnReportDTO returnBooks(@RequestBody LoanReturnRequestDTO dto) {
+        return loanService.returnAll(dto.getIds(), dto.getIsbns());
+    }
+
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public Page<LoanDTO> find(LoanFilterDTO filter, Pageable pageRequest) {
@@ -74,18 +89,60 @@ public class LoanController {
 
         List<LoanDTO> loanDTOs = page.getContent()
                 .stream()
-                .map(
-                        loan -> {
-                            BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
-                            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+                .map(loanMapper::toDto)
+                .collect(Collectors.toList());
 
-                            loanDTO.setBook(bookDTO);
+        return new PageImpl<>(loanDTOs, pageRequest, page.getTotalElements());
+    }
 
-                            return loanDTO;
-                        }
-                )
+    @GetMapping("/overdue")
+    @ResponseStatus(HttpStatus.OK)
+    public Page<LoanDTO> findOverdue(Pageable pageRequest) {
+        Page<Loan> page = loanService.getOverdueLoans(pageRequest);
+
+        List<LoanDTO> loanDTOs = page.getContent()
+                .stream()
+                .map(loanMapper::toDto)
                 .collect(Collectors.toList());
 
         return new PageImpl<>(loanDTOs, pageRequest, page.getTotalElements());
     }
+
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPageDTO<LoanDTO> findByCursor(
+            LoanFilterDTO filter,
+            @RequestParam String cursor,
+            Pageable pageRequest
+    ) {
+        Slice<Loan> slice = loanService.findAfter(filter, Cursor.decode(cursor), pageRequest.getPageSize());
+
+        List<LoanDTO> loanDTOs = slice.getContent()
+                .stream()
+                .map(loanMapper::toDto)
+                .collect(Collectors.toList());
+
+        return CursorPageDTO.<LoanDTO>builder()
+                .content(loanDTOs)
+                .size(slice.getSize())
+                .next(slice.hasNext() ? Cursor.encode(loanDTOs.get(loanDTOs.size() - 1).getId()) : null)
+                .build();
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        return export(ExportService.Format.NDJSON, "application/x-ndjson", "loans.ndjson");
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        return export(ExportService.Format.CSV, "text/csv", "loans.csv");
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportService.Format format, String contentType, String filename) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(out -> exportService.exportLoans(out, format));
+    }
 }
@@ -0,0 +1,105 @@
+package com.gianvittorio.libraryapi.libraryapi.resource;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveBookService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * WebFlux variant of {@link BookController}, active with the reactive profile. Listings are
+ * streamed as they are read, as a JSON array or as newline delimited JSON, instead of as a page.
+ */
+@RestController
+@RequestMapping("/api/v1/books")
+@AllArgsConstructor
+@Profile("reactive")
+@Api("Books API")
+@Slf4j
+public class ReactiveBookController {
+    private final ReactiveBookService service;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+
+    @PostMapping
+    @ApiOperation("Create a book")
+    public Mono<ResponseEntity<BookDTO>> create(@RequestBody @Valid BookDTO dto) {
+        log.info("Creating a book for isbn {}", dto.getIsbn());
+
+        return service.save(bookMapper.toEntity(dto))
+                .map(entity -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(bookMapper.toDto(entity)));
+    }
+
+    @GetMapping(value = "/{id}", produces = "application/json")
+    @ApiOperation("Obtains book details referred to by id")
+    public Mono<BookDTO> get(@PathVariable Long id) {
+        log.info("Obtaining details for book id {}", id);
+
+        return found(service.getById(id))
+                .map(bookMapper::toDto);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ApiOperation("Find books by params")
+    public Flux<BookDTO> find(BookDTO dto, Pageable pageRequest) {
+        return service.find(bookMapper.toEntity(dto), pageRequest)
+                .map(bookMapper::toDto);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ApiOperation("Deletes book referred to by id")
+    public Mono<Void> delete(@PathVariable Long id) {
+        log.info("Deleting book referred to by id {}", id);
+
+        return found(service.getById(id))
+                .flatMap(service::delete);
+    }
+
+    @PutMapping("{id}")
+    @ApiOperation("Updates book referred to by id")
+    public Mono<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO bookDTO) {
+        log.info("Updating details for book referred to by id {}", id);
+
+        return found(service.getById(id))
+                .flatMap(book -> {
+                    book.setAuthor(bookDTO.getAuthor());
+                    book.setTitle(bookDTO.getTitle());
+
+                    return service.update(book);
+                })
+                .map(bookMapper::toDto);
+    }
+
+    @GetMapping(value = "/{id}/loans", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable) {
+        return found(service.getById(id))
+                .flatMapMany(book -> {
+                    BookDTO bookDTO = bookMapper.toDto(book);
+
+                    return service.getLoansByBook(book, pageable)
+                            .map(loan -> loanMapper.toDto(loan, bookDTO));
+                });
+    }
+
+    private static Mono<Book> found(Mono<Book> book) {
+        return book.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.gianvittorio.libraryapi.libraryapi.resource;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.ReturnedLoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveBookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveLoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * WebFlux variant of {@link LoanController}, active with the reactive profile.
+ */
+@RestController
+@RequestMapping("/api/v1/loan")
+@RequiredArgsConstructor
+@Profile("reactive")
+public class ReactiveLoanController {
+    private final ReactiveLoanService loanService;
+    private final ReactiveBookService bookService;
+    private final LoanMapper loanMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody LoanDTO dto) {
+        return bookService.getBookByIsbn(dto.getIsbn())
+                .switchIfEmpty(Mono.error(
+                        () -> new ResponseStatusException(
+                                HttpStatus.BAD_REQUEST,
+                                "Book not found for provided Isbn!"
+                        )
+                ))
+                .flatMap(book -> {
+                    Loan entity = loanMapper.toEntity(dto);
+                    entity.setBook(book);
+                    entity.setLoanDate(LocalDate.now());
+
+                    return loanService.save(entity);
+                })
+                .map(Loan::getId);
+    }
+
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+        return loanService.getById(id)
+                .switchIfEmpty(Mono.error(
+                        () -> new ResponseStatusException(
+                                HttpStatus.NOT_FOUND,
+                                String.format("Book referred to by %d does not exist!", id)
+                        )
+                ))
+                .flatMap(loan -> {
+                    loan.setReturned(dto.getReturned());
+
+                    return loanService.update(loan);
+                })
+                .then();
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<LoanDTO> find(LoanFilterDTO filter, Pageable pageRequest) {
+        return loanService.find(filter, pageRequest)
+                .map(loanMapper::toDto);
+    }
+}
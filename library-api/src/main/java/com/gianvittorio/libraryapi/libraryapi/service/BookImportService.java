@@ -0,0 +1,15 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportReportDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public interface BookImportService {
+    enum Format {
+        NDJSON,
+        CSV
+    }
+
+    BookImportReportDTO importBooks(Reader reader, Format format) throws IOException;
+}
@@ -0,0 +1,38 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Part of every cached book search key, bumped once a change to the catalog commits, so the
+ * cached searches of the previous generation are no longer looked up and age out of the cache.
+ * Shared by everything writing books, e.g. the book service and the bulk import.
+ */
+@Component
+public class BookSearchGeneration {
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Bumps the generation once the current transaction commits, or at once outside of one.
+     */
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generation.incrementAndGet();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generation.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.search.mapper.orm.Search;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Rebuilds the book search index from the database on startup, for books written while the
+ * index was not being maintained, e.g. by schema migrations or with a non-persistent index.
+ * <p>
+ * Always rebuilt for an in-memory database: it starts empty, while a persistent index would still
+ * hold the books of the previous run, under ids the new books are about to take again.
+ */
+@Slf4j
+@Component
+public class BookSearchIndexer {
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataSource dataSource;
+
+    private final boolean reindexOnStartup;
+
+    public BookSearchIndexer(
+            EntityManagerFactory entityManagerFactory,
+            DataSource dataSource,
+            @Value("${application.books.search.reindex-on-startup:false}") boolean reindexOnStartup) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataSource = dataSource;
+        this.reindexOnStartup = reindexOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindex() throws InterruptedException, SQLException {
+        if (!reindexOnStartup && !isInMemory()) {
+            return;
+        }
+
+        log.info("Rebuilding the book search index");
+        Search.mapping(entityManagerFactory)
+                .scope(Book.class)
+                .massIndexer()
+                .startAndWait();
+    }
+
+    private boolean isInMemory() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+
+            return url != null && (url.contains(":mem:") || url.contains(":memory:"));
+        }
+    }
+}
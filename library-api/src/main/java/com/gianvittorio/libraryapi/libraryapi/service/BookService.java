@@ -4,6 +4,7 @@ import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -20,6 +21,10 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, long afterId, int size);
+
+    Page<Book> search(String query, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String isbn);
 
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
@@ -4,4 +4,6 @@ import java.util.List;
 
 public interface EmailService {
     void sendMail(List<String> mailList, String message);
+
+    void sendMail(List<String> mailList, String subject, String message);
 }
@@ -0,0 +1,15 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    enum Format {
+        NDJSON,
+        CSV
+    }
+
+    long exportBooks(OutputStream out, Format format) throws IOException;
+
+    long exportLoans(OutputStream out, Format format) throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import java.util.OptionalLong;
+
+public interface IsbnIndex {
+    /**
+     * Whether the index answers for the given ISBN; only ISBN-13s are indexed.
+     */
+    boolean covers(String isbn);
+
+    /**
+     * The id of the book of a covered ISBN, or empty if there is none.
+     */
+    OptionalLong find(String isbn);
+}
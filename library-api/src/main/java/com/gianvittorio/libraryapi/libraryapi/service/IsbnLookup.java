@@ -0,0 +1,16 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+
+import java.util.Optional;
+
+public interface IsbnLookup {
+    Optional<Book> find(String isbn);
+
+    boolean exists(String isbn);
+
+    /**
+     * Makes a newly saved ISBN known, so its lookups are no longer short-circuited as misses.
+     */
+    void add(String isbn);
+}
@@ -0,0 +1,38 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The invalid ISBNs of the books stored before ISBNs were validated, flagged by the V7 migration.
+ * Invalid ISBNs can no longer be saved, so the set is loaded once, and lookups of any other invalid
+ * ISBN are answered as misses without a query.
+ */
+@Slf4j
+@Component
+public class LegacyIsbns {
+    private final BookRepository repository;
+
+    private volatile Set<String> isbns = Collections.emptySet();
+
+    public LegacyIsbns(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        isbns = Collections.unmodifiableSet(new HashSet<>(repository.findLegacyIsbns()));
+        log.info("Loaded {} legacy ISBNs", isbns.size());
+    }
+
+    public boolean contains(String isbn) {
+        return isbn != null && isbns.contains(isbn);
+    }
+}
@@ -0,0 +1,14 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+
+import java.util.List;
+
+/**
+ * Receives loan events relayed from the outbox, in batches and in the order they were written.
+ * Delivery is at least once: a batch is handed out again when any consumer fails on it, so
+ * consumers must tolerate duplicates.
+ */
+public interface LoanEventConsumer {
+    void consume(List<LoanEventDTO> events);
+}
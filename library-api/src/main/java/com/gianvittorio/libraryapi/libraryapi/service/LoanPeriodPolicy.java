@@ -0,0 +1,12 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+
+import java.time.LocalDate;
+
+public interface LoanPeriodPolicy {
+    /**
+     * The last day the book of the given loan may be returned on.
+     */
+    LocalDate dueDate(Loan loan);
+}
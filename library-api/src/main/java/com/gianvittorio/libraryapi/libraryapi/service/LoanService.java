@@ -1,9 +1,12 @@
 package com.gianvittorio.libraryapi.libraryapi.service;
 
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnReportDTO;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LateLoanEmail;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,7 +20,19 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
+    LoanReturnReportDTO returnAll(List<Long> ids, List<String> isbns);
+
     Page<Loan> find(LoanFilterDTO dto, Pageable pageRequest);
 
+    Slice<Loan> findAfter(LoanFilterDTO dto, long afterId, int size);
+
     List<Loan> getAllLateLoans();
+
+    Page<Loan> getOverdueLoans(Pageable pageRequest);
+
+    List<LateLoanEmail> getLateLoanEmails(long afterId, int size);
+
+    long countOpenLoans();
+
+    long countLateLoans();
 }
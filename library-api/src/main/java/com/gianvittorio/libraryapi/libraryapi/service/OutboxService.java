@@ -0,0 +1,11 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+
+import java.util.List;
+
+public interface OutboxService {
+    void append(List<LoanEventDTO> events);
+
+    int relay();
+}
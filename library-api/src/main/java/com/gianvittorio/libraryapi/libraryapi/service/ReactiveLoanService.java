@@ -0,0 +1,20 @@
+package com.gianvittorio.libraryapi.libraryapi.service;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link LoanService}, served over R2DBC by the reactive profile.
+ */
+public interface ReactiveLoanService {
+    Mono<Loan> save(Loan loan);
+
+    Mono<Loan> getById(Long id);
+
+    Mono<Loan> update(Loan loan);
+
+    Flux<Loan> find(LoanFilterDTO dto, Pageable pageRequest);
+}
@@ -1,38 +1,89 @@
 package com.gianvittorio.libraryapi.libraryapi.service;
 
-import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LateLoanEmail;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class ScheduledService {
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
     private final String message;
 
+    private final int chunkSize;
+
     private final LoanService loanService;
     private final EmailService emailService;
 
-    ScheduledService(
+    private final Timer chunkTimer;
+    private final Counter chunkCounter;
+    private final Counter loanCounter;
+
+    public ScheduledService(
             LoanService loanService,
             EmailService emailService,
-            @Value("${application.mail.lateloans.message}") String message) {
+            MeterRegistry meterRegistry,
+            @Value("${application.mail.lateloans.message}") String message,
+            @Value("${application.mail.lateloans.chunk-size:500}") int chunkSize) {
         this.loanService = loanService;
         this.emailService = emailService;
         this.message = message;
+        this.chunkSize = chunkSize;
+
+        chunkTimer = Timer.builder("library.lateloans.chunk")
+                .description("Time spent reading and notifying one chunk of late loans")
+                .register(meterRegistry);
+        chunkCounter = Counter.builder("library.lateloans.chunks")
+                .description("Chunks of late loans processed")
+                .register(meterRegistry);
+        loanCounter = Counter.builder("library.lateloans.notified")
+                .description("Late loans whose customers have been notified")
+                .register(meterRegistry);
     }
 
+    /**
+     * Walks late loans in chunks ordered by id, so only one chunk of e-mail addresses is held
+     * in memory at a time.
+     */
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoaners() {
-        List<Loan> lateLoans = loanService.getAllLateLoans();
-        List<String> mailList = lateLoans.stream()
-                .map(Loan::getCustomerEmail)
-                .collect(Collectors.toList());
+        long lastId = 0;
+        long processed = 0;
+        List<LateLoanEmail> chunk;
+
+        do {
+            Timer.Sample sample = Timer.start();
+
+            chunk = loanService.getLateLoanEmails(lastId, chunkSize);
+            if (!chunk.isEmpty()) {
+                List<String> mailList = chunk.stream()
+                        .map(LateLoanEmail::getCustomerEmail)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+
+                if (!mailList.isEmpty()) {
+                    emailService.sendMail(mailList, message);
+                }
+
+                lastId = chunk.get(chunk.size() - 1).getId();
+                processed += chunk.size();
+
+                chunkCounter.increment();
+                loanCounter.increment(chunk.size());
+                log.info("Notified {} late loans so far, up to loan id {}", processed, lastId);
+            }
 
-        emailService.sendMail(mailList, message);
+            sample.stop(chunkTimer);
+        } while (chunk.size() == chunkSize);
     }
 }
@@ -0,0 +1,302 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportErrorDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookImportService;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+    private static final String DUPLICATED_ISBN = "ISBN already exists!";
+    private static final String MALFORMED_ROW = "Malformed row!";
+    private static final String NOT_IMPORTED = "Book could not be imported!";
+
+    private final BookRepository repository;
+    private final BookSearchGeneration searchGeneration;
+    private final BookMapper bookMapper;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    @Autowired
+    public BookImportServiceImpl(
+            BookRepository repository,
+            BookSearchGeneration searchGeneration,
+            BookMapper bookMapper,
+            ObjectMapper objectMapper,
+            Validator validator,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            @Value("${application.books.import.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.searchGeneration = searchGeneration;
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public BookImportReportDTO importBooks(Reader reader, Format format) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+
+        List<BookImportErrorDTO> errors = new ArrayList<>();
+        List<Row> batch = new ArrayList<>(batchSize);
+        Map<String, Integer> header = null;
+        long lineNumber = 0, received = 0, imported = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+
+            if (line.isBlank()) {
+                continue;
+            }
+
+            if (format == Format.CSV && header == null) {
+                header = parseHeader(line);
+                continue;
+            }
+
+            received++;
+
+            BookDTO dto;
+            try {
+                dto = format == Format.CSV ? parseCsv(header, line) : objectMapper.readValue(line, BookDTO.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                errors.add(error(lineNumber, null, MALFORMED_ROW));
+                continue;
+            }
+
+            Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                errors.add(error(lineNumber, dto.getIsbn(), violationsMessage(violations)));
+                continue;
+            }
+
+            // as stored, so spellings of the same ISBN are caught as duplicates
+            dto.setIsbn(Isbn.normalize(dto.getIsbn()));
+
+            batch.add(new Row(lineNumber, dto));
+
+            if (batch.size() == batchSize) {
+                imported += flush(batch, errors);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            imported += flush(batch, errors);
+        }
+
+        log.info("Imported {} out of {} books", imported, received);
+
+        return BookImportReportDTO.builder()
+                .received(received)
+                .imported(imported)
+                .errors(errors)
+                .build();
+    }
+
+    /**
+     * Checks the whole batch for existing ISBNs with one query, then inserts the remaining books as a JDBC batch.
+     */
+    private long flush(List<Row> batch, List<BookImportErrorDTO> errors) {
+        List<Row> accepted = transactionTemplate.execute(status -> {
+            Set<String> existingIsbns = repository.findIsbnsIn(
+                    batch.stream()
+                            .map(row -> row.dto.getIsbn())
+                            .collect(Collectors.toSet())
+            );
+
+            Set<String> batchIsbns = new HashSet<>();
+            List<Row> rows = new ArrayList<>(batch.size());
+
+            for (Row row : batch) {
+                String isbn = row.dto.getIsbn();
+
+                if (existingIsbns.contains(isbn) || !batchIsbns.add(isbn)) {
+                    errors.add(error(row.line, isbn, DUPLICATED_ISBN));
+                } else {
+                    rows.add(row);
+                }
+            }
+
+            return rows;
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.saveAll(
+                        accepted.stream()
+                                .map(this::newBook)
+                                .collect(Collectors.toList())
+                );
+
+                entityManager.flush();
+                entityManager.clear();
+
+                searchGeneration.invalidate();
+            });
+
+            return accepted.size();
+        } catch (DataAccessException e) {
+            log.warn("Batch insert rejected, importing its {} books one by one", accepted.size(), e);
+
+            return saveOneByOne(accepted, errors);
+        }
+    }
+
+    /**
+     * Fallback for batches rejected by the database, e.g. an ISBN inserted concurrently by someone else.
+     */
+    private long saveOneByOne(List<Row> rows, List<BookImportErrorDTO> errors) {
+        long imported = 0;
+
+        for (Row row : rows) {
+            try {
+                repository.save(newBook(row));
+                searchGeneration.invalidate();
+                imported++;
+            } catch (DataIntegrityViolationException e) {
+                errors.add(error(row.line, row.dto.getIsbn(), DUPLICATED_ISBN));
+            } catch (DataAccessException e) {
+                errors.add(error(row.line, row.dto.getIsbn(), NOT_IMPORTED));
+            }
+        }
+
+        return imported;
+    }
+
+    private Book newBook(Row row) {
+        Book book = bookMapper.toEntity(row.dto);
+        book.setId(null);
+
+        return book;
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(), i);
+        }
+
+        return header;
+    }
+
+    private static BookDTO parseCsv(Map<String, Integer> header, String line) {
+        List<String> fields = splitCsv(line);
+
+        return BookDTO.builder()
+                .title(field(header, fields, "title"))
+                .author(field(header, fields, "author"))
+                .isbn(field(header, fields, "isbn"))
+                .build();
+    }
+
+    private static String field(Map<String, Integer> header, List<String> fields, String column) {
+        Integer index = header.get(column);
+
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    /**
+     * Splits a RFC 4180 line: fields may be quoted, and quotes inside quoted fields are doubled.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    private static String violationsMessage(Set<ConstraintViolation<BookDTO>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BookImportErrorDTO error(long line, String isbn, String message) {
+        return BookImportErrorDTO.builder()
+                .line(line)
+                .isbn(isbn)
+                .message(message)
+                .build();
+    }
+
+    private static class Row {
+        private final long line;
+        private final BookDTO dto;
+
+        private Row(long line, BookDTO dto) {
+            this.line = line;
+            this.dto = dto;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Tells the {@link IsbnLookup} of every book inserted through JPA, whether by the book service,
+ * the importer or a repository. Registered before the known ISBNs are loaded on startup, so no
+ * insert falls in between.
+ */
+@Component
+public class BookInsertListener implements PostInsertEventListener {
+    private final IsbnLookup isbnLookup;
+
+    public BookInsertListener(EntityManagerFactory entityManagerFactory, IsbnLookup isbnLookup) {
+        this.isbnLookup = isbnLookup;
+
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_INSERT, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Book) {
+            isbnLookup.add(((Book) event.getEntity()).getIsbn());
+        }
+    }
+
+    // a rolled back insert only leaves a false positive behind
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
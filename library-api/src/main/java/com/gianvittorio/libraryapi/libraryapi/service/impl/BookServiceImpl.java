@@ -1,61 +1,170 @@
 package com.gianvittorio.libraryapi.libraryapi.service.impl;
 
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnIndex;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
+import lombok.Data;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.search.engine.search.common.BooleanOperator;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.util.Locale;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @Service
 public class BookServiceImpl implements BookService {
+    public static final String BOOKS_CACHE = "books";
+    public static final String BOOKS_BY_ISBN_CACHE = "booksByIsbn";
+    public static final String BOOK_SEARCHES_CACHE = "bookSearches";
+
+    /**
+     * Books by ISBN are cached by the normalized ISBN, so every spelling of a valid ISBN shares an
+     * entry, and books stored with an invalid ISBN are cached by it as it is. A null ISBN has no
+     * key, so it is neither cached nor evicted.
+     */
+    private static final String ISBN_KEY = "T(com.gianvittorio.libraryapi.libraryapi.model.Isbn).normalize(#isbn)";
+
     private BookRepository repository;
+    private LoanRepository loanRepository;
+    private IsbnLookup isbnLookup;
+    private IsbnIndex isbnIndex;
+    private BookSearchGeneration searchGeneration;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(
+            BookRepository repository,
+            LoanRepository loanRepository,
+            IsbnLookup isbnLookup,
+            BookSearchGeneration searchGeneration) {
         this.repository = repository;
+        this.loanRepository = loanRepository;
+        this.isbnLookup = isbnLookup;
+        this.searchGeneration = searchGeneration;
     }
 
+    /**
+     * The optional ISBN index, see application.books.isbn-index.
+     */
+    @Autowired(required = false)
+    public void setIsbnIndex(IsbnIndex isbnIndex) {
+        this.isbnIndex = isbnIndex;
+    }
+
+    /**
+     * Not transactional, like {@link #getBookByIsbn}: the ISBN lookup waits for a batch, which
+     * needs a connection of its own. A concurrent create of the same ISBN slips past the lookup and
+     * is caught by the unique index instead.
+     */
     @Override
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())) {
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+
+        if (isbnLookup.exists(book.getIsbn())) {
             throw new BusinessException("ISBN already exists!");
         }
 
-        return repository.save(book);
+        Book saved;
+        try {
+            saved = repository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            if (isIsbnViolation(e)) {
+                throw new BusinessException("ISBN already exists!");
+            }
+
+            throw e;
+        }
+        searchGeneration.invalidate();
+
+        return saved;
+    }
+
+    private static boolean isIsbnViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+
+                return constraintName != null
+                        && constraintName.toLowerCase().contains(Book.ISBN_CONSTRAINT);
+            }
+        }
+
+        return false;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = BOOKS_CACHE, unless = "#result == null")
     public Optional<Book> getById(Long id) {
         return repository.findById(id);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOKS_CACHE, key = "#book.id"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN_CACHE, key = "T(com.gianvittorio.libraryapi.libraryapi.model.Isbn).normalize(#book.isbn)",
+                    condition = "#book.isbn != null")
+    })
     public void delete(Book book) throws IllegalArgumentException {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id cannot be null!");
         }
 
         repository.delete(book);
+        searchGeneration.invalidate();
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOKS_CACHE, key = "#book.id"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN_CACHE, key = "T(com.gianvittorio.libraryapi.libraryapi.model.Isbn).normalize(#book.isbn)",
+                    condition = "#book.isbn != null")
+    })
     public Book update(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id cannot be null!");
         }
 
-        return repository.save(book);
+        Book updated = repository.save(book);
+        searchGeneration.invalidate();
+
+        return updated;
     }
 
+    /**
+     * Cached by {@link #searchKey}; concurrent misses on the same key wait for a single query.
+     */
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = BOOK_SEARCHES_CACHE, key = "#root.target.searchKey(#filter, #pageRequest)", sync = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
         Example<Book> example = Example.of(
                 filter,
@@ -68,14 +177,78 @@ public class BookServiceImpl implements BookService {
         return repository.findAll(example, pageRequest);
     }
 
+    /**
+     * Filters differing only in case find the same books, so they share a key.
+     */
+    public SearchKey searchKey(Book filter, Pageable pageRequest) {
+        return new SearchKey(
+                searchGeneration.current(),
+                filter.getId(),
+                normalize(filter.getTitle()),
+                normalize(filter.getAuthor()),
+                normalize(filter.getIsbn()),
+                pageRequest
+        );
+    }
+
     @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> findAfter(Book filter, long afterId, int size) {
+        return repository.findByFilterAfter(
+                filter.getTitle(),
+                filter.getAuthor(),
+                filter.getIsbn(),
+                afterId,
+                PageRequest.of(0, size)
+        );
+    }
+
+    /**
+     * Matches the query against the full-text index of titles and authors, best matches first.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Book> search(String query, Pageable pageRequest) {
+        SearchResult<Book> result = Search.session(entityManager)
+                .search(Book.class)
+                .where(f -> f.simpleQueryString()
+                        .fields("title", "author")
+                        .matching(query)
+                        .defaultOperator(BooleanOperator.AND))
+                .fetch((int) pageRequest.getOffset(), pageRequest.getPageSize());
+
+        return new PageImpl<>(result.hits(), pageRequest, result.total().hitCount());
+    }
+
+    @Override
+    @Cacheable(cacheNames = BOOKS_BY_ISBN_CACHE, key = ISBN_KEY, condition = "#isbn != null", unless = "#result == null")
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        if (isbnIndex != null && isbnIndex.covers(isbn)) {
+            OptionalLong id = isbnIndex.find(isbn);
+
+            return id.isPresent() ? repository.findById(id.getAsLong()) : Optional.empty();
+        }
+
+        return isbnLookup.find(isbn);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
-//        return repository.findByBook(book, pageable);
-        return null;
+        return loanRepository.findByBook(book, pageable);
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    @Data
+    public static class SearchKey {
+        private final long generation;
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final String isbn;
+        private final Pageable pageRequest;
     }
 }
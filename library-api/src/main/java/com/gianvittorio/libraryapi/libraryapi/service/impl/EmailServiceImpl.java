@@ -1,33 +1,286 @@
 package com.gianvittorio.libraryapi.libraryapi.service.impl;
 
+import com.gianvittorio.libraryapi.libraryapi.model.entity.EmailDeadLetter;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.EmailDeadLetterRepository;
 import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Sends one message per recipient on a bounded worker pool. Recipients are grouped into batches
+ * sent over a single SMTP connection; failed messages are retried with exponential backoff and
+ * recorded as {@link EmailDeadLetter} once the attempts run out.
+ * <p>
+ * Callers never send, nor wait for a retry. They wait instead while {@code pool-size} plus
+ * {@code queue-capacity} batches are in flight, those waiting for a retry included, so a large
+ * backlog is throttled rather than dropped. Retries are re-submitted to the pool by a scheduler
+ * once their backoff has elapsed, without waiting, as their batch still holds its place.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-public class EmailServiceImpl implements EmailService {
-    @Value(value = "${application.mail.default-sender}")
-    private String sender;
+public class EmailServiceImpl implements EmailService, DisposableBean {
+    private static final String SUBJECT = "Expired loan";
+
+    private final String sender;
 
     private final JavaMailSender javaMailSender;
+    private final EmailDeadLetterRepository deadLetterRepository;
+
+    private final ThreadPoolTaskExecutor executor;
+    // one per batch, from its submission until it is sent or dead lettered
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService retryScheduler;
+
+    // waiting for their backoff, dead lettered if still waiting on shutdown
+    private final Set<Retry> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final double backoffMultiplier;
+
+    public EmailServiceImpl(
+            JavaMailSender javaMailSender,
+            EmailDeadLetterRepository deadLetterRepository,
+            @Value("${application.mail.default-sender}") String sender,
+            @Value("${application.mail.dispatch.pool-size:4}") int poolSize,
+            @Value("${application.mail.dispatch.queue-capacity:100}") int queueCapacity,
+            @Value("${application.mail.dispatch.batch-size:50}") int batchSize,
+            @Value("${application.mail.dispatch.max-attempts:4}") int maxAttempts,
+            @Value("${application.mail.dispatch.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${application.mail.dispatch.backoff-multiplier:2}") double backoffMultiplier) {
+        this.javaMailSender = javaMailSender;
+        this.deadLetterRepository = deadLetterRepository;
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.backoffMultiplier = backoffMultiplier;
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("mail-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        // bounded by inFlight instead, so re-submitted retries always find room
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        inFlight = new Semaphore(poolSize + queueCapacity);
+
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     @Override
     public void sendMail(List<String> mailList, String message) {
+        sendMail(mailList, SUBJECT, message);
+    }
+
+    @Override
+    public void sendMail(List<String> mailList, String subject, String message) {
+        List<SimpleMailMessage> messages = mailList.stream()
+                .distinct()
+                .map(recipient -> newMessage(recipient, subject, message))
+                .collect(Collectors.toList());
+
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            List<SimpleMailMessage> batch = new ArrayList<>(
+                    messages.subList(from, Math.min(from + batchSize, messages.size()))
+            );
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for the e-mail queue, dropping {} e-mails", messages.size() - from);
+                deadLetter(failed(messages.subList(from, messages.size()), e), 0);
+                return;
+            }
+
+            submit(batch, 1, initialBackoff);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        retryScheduler.shutdownNow();
+        pendingRetries.forEach(retry -> {
+            if (pendingRetries.remove(retry)) {
+                deadLetter(retry.failures, retry.attempt);
+                inFlight.release();
+            }
+        });
+
+        executor.shutdown();
+    }
+
+    private void submit(List<SimpleMailMessage> batch, int attempt, Duration backoff) {
+        try {
+            executor.execute(() -> sendBatch(batch, attempt, backoff));
+        } catch (TaskRejectedException e) {
+            // shutting down
+            log.warn("The e-mail pool is shut down, dropping {} e-mails", batch.size());
+            try {
+                deadLetter(failed(batch, e), attempt - 1);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    private void sendBatch(List<SimpleMailMessage> pending, int attempt, Duration backoff) {
+        boolean retrying = false;
+        try {
+            Map<SimpleMailMessage, Exception> failures = send(pending);
+            if (failures.isEmpty()) {
+                return;
+            }
+
+            if (attempt == maxAttempts) {
+                deadLetter(failures, attempt);
+                return;
+            }
+
+            log.warn("Failed to send {} of {} e-mails, attempt {}", failures.size(), pending.size(), attempt);
+            retrying = scheduleRetry(failures, attempt, backoff);
+        } finally {
+            if (!retrying) {
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * Whether the retry was scheduled, taking over the place of its batch; dead letters it otherwise.
+     */
+    private boolean scheduleRetry(Map<SimpleMailMessage, Exception> failures, int attempt, Duration backoff) {
+        Retry retry = new Retry(failures, attempt);
+        pendingRetries.add(retry);
+        try {
+            retryScheduler.schedule(() -> {
+                if (pendingRetries.remove(retry)) {
+                    submit(
+                            new ArrayList<>(failures.keySet()),
+                            attempt + 1,
+                            Duration.ofMillis((long) (backoff.toMillis() * backoffMultiplier))
+                    );
+                }
+            }, backoff.toMillis(), TimeUnit.MILLISECONDS);
+
+            return true;
+        } catch (RejectedExecutionException e) {
+            // shutting down, unless destroy dead lettered it already
+            if (pendingRetries.remove(retry)) {
+                deadLetter(failures, attempt);
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    private Map<SimpleMailMessage, Exception> send(List<SimpleMailMessage> messages) {
+        Map<SimpleMailMessage, Exception> failures = new LinkedHashMap<>();
+
+        try {
+            javaMailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((failed, exception) -> {
+                if (failed instanceof SimpleMailMessage) {
+                    failures.put((SimpleMailMessage) failed, exception);
+                }
+            });
+
+            if (failures.isEmpty()) {
+                messages.forEach(failed -> failures.put(failed, e));
+            }
+        } catch (MailException e) {
+            messages.forEach(failed -> failures.put(failed, e));
+        }
+
+        return failures;
+    }
+
+    private static Map<SimpleMailMessage, Exception> failed(List<SimpleMailMessage> messages, Exception e) {
+        return messages.stream().collect(Collectors.toMap(
+                Function.identity(),
+                message -> e,
+                (first, second) -> first,
+                LinkedHashMap::new
+        ));
+    }
+
+    private void deadLetter(Map<SimpleMailMessage, Exception> failures, int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<EmailDeadLetter> deadLetters = failures.entrySet()
+                .stream()
+                .map(failure -> EmailDeadLetter.builder()
+                        .recipient(failure.getKey().getTo()[0])
+                        .subject(failure.getKey().getSubject())
+                        .text(failure.getKey().getText())
+                        .attempts(attempts)
+                        .lastError(abbreviate(String.valueOf(failure.getValue().getMessage())))
+                        .failedAt(now)
+                        .build())
+                .collect(Collectors.toList());
+
+        log.error("Giving up on {} e-mails after {} attempts", deadLetters.size(), attempts);
+        deadLetterRepository.saveAll(deadLetters);
+    }
+
+    private SimpleMailMessage newMessage(String recipient, String subject, String message) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(sender);
-        mailMessage.setSubject("Expired loan");
+        mailMessage.setSubject(subject);
         mailMessage.setText(message);
-        mailMessage.setTo(
-                mailList.stream()
-                        .toArray(String[]::new)
-        );
+        mailMessage.setTo(recipient);
+
+        return mailMessage;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 1000 ? text : text.substring(0, 1000);
+    }
+
+    /**
+     * Messages waiting for their next attempt; compared by identity.
+     */
+    private static class Retry {
+        private final Map<SimpleMailMessage, Exception> failures;
+        private final int attempt;
 
-        javaMailSender.send(mailMessage);
+        Retry(Map<SimpleMailMessage, Exception> failures, int attempt) {
+            this.failures = failures;
+            this.attempt = attempt;
+        }
     }
 }
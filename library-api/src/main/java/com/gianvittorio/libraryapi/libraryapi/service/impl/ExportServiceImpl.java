@@ -0,0 +1,153 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanExportDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes whole tables row by row while the database cursor advances, clearing the persistence
+ * context after each fetch so heap use stays the same for any number of rows.
+ */
+@Service
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+    private static final String BOOK_HEADER = "id,title,author,isbn";
+    private static final String LOAN_HEADER = "id,customer,email,loanDate,returned,bookId,isbn";
+    private static final int CLEAR_EVERY = Integer.parseInt(BookRepository.STREAM_FETCH_SIZE);
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+    private final EntityManager entityManager;
+    private final ObjectWriter bookWriter;
+    private final ObjectWriter loanWriter;
+
+    @Autowired
+    public ExportServiceImpl(
+            BookRepository bookRepository,
+            LoanRepository loanRepository,
+            BookMapper bookMapper,
+            LoanMapper loanMapper,
+            EntityManager entityManager,
+            ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.bookMapper = bookMapper;
+        this.loanMapper = loanMapper;
+        this.entityManager = entityManager;
+        this.bookWriter = objectMapper.writerFor(BookDTO.class);
+        this.loanWriter = objectMapper.writerFor(LoanExportDTO.class);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream out, Format format) throws IOException {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            long rows = export(out, format, BOOK_HEADER, books, book -> {
+                BookDTO dto = bookMapper.toDto(book);
+
+                return format == Format.CSV
+                        ? csv(dto.getId(), dto.getTitle(), dto.getAuthor(), dto.getIsbn())
+                        : bookWriter.writeValueAsString(dto);
+            });
+
+            log.info("Exported {} books as {}", rows, format);
+
+            return rows;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportLoans(OutputStream out, Format format) throws IOException {
+        try (Stream<Loan> loans = loanRepository.streamAllWithBook()) {
+            long rows = export(out, format, LOAN_HEADER, loans, loan -> {
+                LoanExportDTO dto = loanMapper.toExportDto(loan);
+
+                return format == Format.CSV
+                        ? csv(dto.getId(), dto.getCustomer(), dto.getEmail(), dto.getLoanDate(),
+                        dto.getReturned(), dto.getBookId(), dto.getIsbn())
+                        : loanWriter.writeValueAsString(dto);
+            });
+
+            log.info("Exported {} loans as {}", rows, format);
+
+            return rows;
+        }
+    }
+
+    private <T> long export(OutputStream out, Format format, String header, Stream<T> entities, Line<T> line)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        if (format == Format.CSV) {
+            writer.write(header);
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        Iterator<T> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            writer.write(line.apply(iterator.next()));
+            writer.write('\n');
+
+            if (++rows % CLEAR_EVERY == 0) {
+                entityManager.clear();
+            }
+        }
+
+        writer.flush();
+
+        return rows;
+    }
+
+    /**
+     * Joins the values as a RFC 4180 line, quoting values with separators, quotes or line breaks.
+     */
+    private static String csv(Object... values) {
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+
+            String value = values[i] == null ? "" : values[i].toString();
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+
+        return line.toString();
+    }
+
+    @FunctionalInterface
+    private interface Line<T> {
+        String apply(T entity) throws IOException;
+    }
+}
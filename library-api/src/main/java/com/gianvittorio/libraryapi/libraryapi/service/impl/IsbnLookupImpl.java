@@ -0,0 +1,262 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
+import com.gianvittorio.libraryapi.libraryapi.service.LegacyIsbns;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Looks books up by ISBN in batches: the ISBNs asked for within {@code batch-window} are loaded
+ * by a single IN query, and callers asking for an ISBN already being looked up wait for that
+ * lookup instead of starting another. Every spelling of a valid ISBN shares the lookup of its
+ * ISBN-13. Invalid ISBNs are misses without a query, except for the {@link LegacyIsbns} of books
+ * stored before ISBNs were validated, which are looked up as they are.
+ * <p>
+ * A Bloom filter over the packed ISBNs in the catalog, loaded on startup and kept up to date by
+ * {@link BookInsertListener}, answers definite misses without a query. It only learns of the books
+ * inserted by this instance, so it must be disabled when several instances share a database.
+ */
+@Slf4j
+@Service
+public class IsbnLookupImpl implements IsbnLookup, DisposableBean {
+    private final BookRepository repository;
+    private final LegacyIsbns legacyIsbns;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration batchWindow;
+    private final int maxBatchSize;
+
+    private final ConcurrentMap<String, CompletableFuture<Optional<Book>>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<String> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    private final BloomFilter knownIsbns;
+    private volatile boolean knownIsbnsLoaded;
+
+    public IsbnLookupImpl(
+            BookRepository repository,
+            LegacyIsbns legacyIsbns,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.books.isbn-lookup.batch-window:2ms}") Duration batchWindow,
+            @Value("${application.books.isbn-lookup.max-batch-size:500}") int maxBatchSize,
+            @Value("${application.books.isbn-lookup.bloom-filter.enabled:false}") boolean bloomFilterEnabled,
+            @Value("${application.books.isbn-lookup.bloom-filter.expected-isbns:1000000}") int expectedIsbns,
+            @Value("${application.books.isbn-lookup.bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.legacyIsbns = legacyIsbns;
+        // not read-only: a lagging replica would leave out books, which would then look missing
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.knownIsbns = bloomFilterEnabled ? new BloomFilter(expectedIsbns, falsePositiveRate) : null;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "isbn-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadKnownIsbns() {
+        if (knownIsbns == null) {
+            return;
+        }
+
+        log.info("Loading the known ISBNs");
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> isbns = repository.streamIsbns()) {
+                isbns.mapToLong(Isbn::pack)
+                        .filter(key -> key != Isbn.INVALID)
+                        .forEach(knownIsbns::put);
+            }
+        });
+        knownIsbnsLoaded = true;
+    }
+
+    @Override
+    public Optional<Book> find(String isbn) {
+        long packed = Isbn.pack(isbn);
+        boolean miss = packed == Isbn.INVALID
+                ? !legacyIsbns.contains(isbn)
+                : knownIsbnsLoaded && !knownIsbns.mightContain(packed);
+        if (miss) {
+            return Optional.empty();
+        }
+
+        String key = packed == Isbn.INVALID ? isbn : Long.toString(packed);
+        CompletableFuture<Optional<Book>> lookup = inFlight.computeIfAbsent(key, ignored -> {
+            queued.add(key);
+            return new CompletableFuture<>();
+        });
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, batchWindow.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists(String isbn) {
+        return find(isbn).isPresent();
+    }
+
+    @Override
+    public void add(String isbn) {
+        long packed = Isbn.pack(isbn);
+        if (knownIsbns != null && packed != Isbn.INVALID) {
+            knownIsbns.put(packed);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        inFlight.values().forEach(lookup -> lookup.cancel(false));
+    }
+
+    private void flush() {
+        // ISBNs queued from now on need another flush
+        flushScheduled.set(false);
+
+        List<String> batch = new ArrayList<>();
+        String isbn;
+        while ((isbn = queued.poll()) != null) {
+            batch.add(isbn);
+
+            if (batch.size() == maxBatchSize) {
+                load(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            load(batch);
+        }
+    }
+
+    private void load(List<String> batch) {
+        try {
+            Map<String, Book> books = repository.findByIsbnIn(batch)
+                    .stream()
+                    .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+
+            batch.forEach(isbn -> complete(isbn, lookup -> lookup.complete(Optional.ofNullable(books.get(isbn)))));
+        } catch (RuntimeException e) {
+            log.warn("Could not look {} ISBNs up", batch.size(), e);
+            batch.forEach(isbn -> complete(isbn, lookup -> lookup.completeExceptionally(e)));
+        }
+    }
+
+    // removed before being completed, so later callers look the ISBN up again
+    private void complete(String isbn, Consumer<CompletableFuture<Optional<Book>>> completion) {
+        CompletableFuture<Optional<Book>> lookup = inFlight.remove(isbn);
+
+        if (lookup != null) {
+            completion.accept(lookup);
+        }
+    }
+
+    /**
+     * Bits set by double hashing, sized for the expected number of ISBNs and false positive rate.
+     */
+    private static class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+            words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            bits = words.length() * 64L;
+            hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        }
+
+        void put(long value) {
+            long hash1 = hash1(value), hash2 = hash2(value);
+
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+
+                long current;
+                while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    // another bit of the word was set concurrently, try again
+                }
+            }
+        }
+
+        boolean mightContain(long value) {
+            long hash1 = hash1(value), hash2 = hash2(value);
+
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static long hash1(long value) {
+            return mix(value);
+        }
+
+        // mixed from a differently seeded value, so independent of hash1
+        private static long hash2(long value) {
+            return mix(value ^ 0x9e3779b97f4a7c15L) | 1;
+        }
+
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            return hash ^ hash >>> 33;
+        }
+    }
+}
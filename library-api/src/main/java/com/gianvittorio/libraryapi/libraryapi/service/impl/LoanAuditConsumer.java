@@ -0,0 +1,31 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanEventConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Writes an audit trail of loan events to the {@code library.audit} logger, which can be routed
+ * to its own appender.
+ */
+@Slf4j(topic = "library.audit")
+@Service
+public class LoanAuditConsumer implements LoanEventConsumer {
+    @Override
+    public void consume(List<LoanEventDTO> events) {
+        for (LoanEventDTO event : events) {
+            log.info(
+                    "event={} type={} loan={} isbn={} customer={} occurredAt={}",
+                    event.getEventId(),
+                    event.getType(),
+                    event.getLoanId(),
+                    event.getIsbn(),
+                    event.getCustomer(),
+                    event.getOccurredAt()
+            );
+        }
+    }
+}
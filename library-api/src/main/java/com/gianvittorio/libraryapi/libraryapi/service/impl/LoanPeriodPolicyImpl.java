@@ -0,0 +1,44 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.config.LoanPeriodProperties;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+@Service
+public class LoanPeriodPolicyImpl implements LoanPeriodPolicy {
+    private final LoanPeriodProperties properties;
+
+    public LoanPeriodPolicyImpl(LoanPeriodProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public LocalDate dueDate(Loan loan) {
+        // the loan date is the first day of the period
+        return loan.getLoanDate().plus(period(loan)).minusDays(1);
+    }
+
+    private Period period(Loan loan) {
+        if (loan.getBook() != null && loan.getBook().getIsbn() != null) {
+            Period period = properties.getByIsbn().get(loan.getBook().getIsbn());
+            if (period != null) {
+                return period;
+            }
+        }
+
+        String email = loan.getCustomerEmail();
+        if (email != null && email.indexOf('@') >= 0) {
+            Period period = properties.getByEmailDomain()
+                    .get(email.substring(email.lastIndexOf('@') + 1).toLowerCase());
+            if (period != null) {
+                return period;
+            }
+        }
+
+        return properties.getDefaultPeriod();
+    }
+}
@@ -0,0 +1,52 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanEventConsumer;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * E-mails customers as their loans are created, reminding them of the return date, and confirms
+ * returns, right after the change instead of in the nightly late loan run.
+ */
+@Service
+public class LoanReminderConsumer implements LoanEventConsumer {
+    private static final String CREATED_SUBJECT = "Loan reminder";
+    private static final String RETURNED_SUBJECT = "Loan returned";
+
+    private final EmailService emailService;
+
+    public LoanReminderConsumer(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    @Override
+    public void consume(List<LoanEventDTO> events) {
+        for (LoanEventDTO event : events) {
+            if (event.getCustomerEmail() == null) {
+                continue;
+            }
+
+            List<String> mailList = Collections.singletonList(event.getCustomerEmail());
+
+            switch (event.getType()) {
+                case LOAN_CREATED:
+                    emailService.sendMail(mailList, CREATED_SUBJECT, String.format(
+                            "Book %s is on loan to you, please return it by %s.",
+                            event.getIsbn(),
+                            event.getDueDate()
+                    ));
+                    break;
+                case LOAN_RETURNED:
+                    emailService.sendMail(mailList, RETURNED_SUBJECT, String.format(
+                            "Book %s has been returned, thank you.",
+                            event.getIsbn()
+                    ));
+                    break;
+            }
+        }
+    }
+}
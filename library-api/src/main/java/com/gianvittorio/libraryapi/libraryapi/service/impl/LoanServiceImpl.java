@@ -1,57 +1,283 @@
 package com.gianvittorio.libraryapi.libraryapi.service.impl;
 
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnResultDTO;
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LateLoanEmail;
 import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.ReturnableLoan;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
 import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LoanServiceImpl implements LoanService {
+    private static final int MAX_RETURN_BATCH_SIZE = 1_000;
+
     LoanRepository repository;
 
+    OutboxService outboxService;
+
+    LoanPeriodPolicy loanPeriodPolicy;
+
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook())) {
-            throw new BusinessException("Book is currently loaned!");
+        if (loan.getDueDate() == null && loan.getLoanDate() != null) {
+            loan.setDueDate(loanPeriodPolicy.dueDate(loan));
         }
 
-        return repository.save(loan);
+        try {
+            Loan saved = repository.saveAndFlush(loan);
+            outboxService.append(Collections.singletonList(event(LoanEventDTO.Type.LOAN_CREATED, saved)));
+
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            if (isActiveBookViolation(e)) {
+                throw new BusinessException("Book is currently loaned!");
+            }
+
+            throw e;
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Loan> getById(Long id) {
         return repository.findById(id);
     }
 
+    /**
+     * Records a return when the loan still holds its book, which is only released on flush.
+     */
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        boolean returning = Boolean.TRUE.equals(loan.getReturned()) && loan.getActiveBookId() != null;
+
+        Loan updated = repository.save(loan);
+        if (returning) {
+            outboxService.append(Collections.singletonList(event(LoanEventDTO.Type.LOAN_RETURNED, updated)));
+        }
+
+        return updated;
+    }
+
+    /**
+     * Locks the loans asked for, then returns the open ones with a single bulk update, so a crate
+     * of books costs a few statements instead of a read and a write per loan.
+     */
+    @Override
+    @Transactional
+    public LoanReturnReportDTO returnAll(List<Long> ids, List<String> isbns) {
+        Set<Long> loanIds = distinct(ids);
+        // spellings of the same ISBN are one book, stored as its ISBN-13
+        Set<String> loanIsbns = distinct(isbns == null ? null : isbns.stream()
+                .map(Isbn::normalize)
+                .collect(Collectors.toList()));
+
+        if (loanIds.size() + loanIsbns.size() > MAX_RETURN_BATCH_SIZE) {
+            throw new BusinessException(
+                    String.format("Cannot return more than %d loans at once!", MAX_RETURN_BATCH_SIZE)
+            );
+        }
+
+        Map<Long, ReturnableLoan> loansById = loanIds.isEmpty()
+                ? Collections.emptyMap()
+                : repository.findReturnableByIdIn(loanIds)
+                .stream()
+                .collect(Collectors.toMap(ReturnableLoan::getId, Function.identity()));
+
+        // a book has at most one open loan, so its isbn identifies the loan to return
+        Map<String, ReturnableLoan> openLoansByIsbn = loanIsbns.isEmpty()
+                ? Collections.emptyMap()
+                : repository.findOpenReturnableByBookIsbnIn(loanIsbns)
+                .stream()
+                .collect(Collectors.toMap(ReturnableLoan::getIsbn, Function.identity()));
+
+        Set<String> withoutOpenLoan = new HashSet<>(loanIsbns);
+        withoutOpenLoan.removeAll(openLoansByIsbn.keySet());
+
+        Set<String> loanedIsbns = withoutOpenLoan.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(repository.findLoanedIsbnsIn(withoutOpenLoan));
+
+        Set<Long> returning = new LinkedHashSet<>();
+        List<LoanReturnResultDTO> results = new ArrayList<>(loanIds.size() + loanIsbns.size());
+
+        for (Long id : loanIds) {
+            ReturnableLoan loan = loansById.get(id);
+
+            results.add(
+                    LoanReturnResultDTO.builder()
+                            .id(id)
+                            .isbn(loan == null ? null : loan.getIsbn())
+                            .status(loan == null ? LoanReturnResultDTO.Status.NOT_FOUND : status(loan, returning))
+                            .build()
+            );
+        }
+
+        for (String isbn : loanIsbns) {
+            ReturnableLoan loan = openLoansByIsbn.get(isbn);
+
+            LoanReturnResultDTO.Status status = loan != null
+                    ? status(loan, returning)
+                    : loanedIsbns.contains(isbn) ? LoanReturnResultDTO.Status.ALREADY_RETURNED : LoanReturnResultDTO.Status.NOT_FOUND;
+
+            results.add(
+                    LoanReturnResultDTO.builder()
+                            .id(loan == null ? null : loan.getId())
+                            .isbn(isbn)
+                            .status(status)
+                            .build()
+            );
+        }
+
+        int returned = 0;
+        if (!returning.isEmpty()) {
+            returned = repository.markReturned(returning);
+
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, ReturnableLoan> returnable = new HashMap<>(loansById);
+            openLoansByIsbn.values().forEach(loan -> returnable.put(loan.getId(), loan));
+
+            outboxService.append(
+                    returning.stream()
+                            .map(returnable::get)
+                            .map(loan -> LoanEventDTO.builder()
+                                    .type(LoanEventDTO.Type.LOAN_RETURNED)
+                                    .loanId(loan.getId())
+                                    .isbn(loan.getIsbn())
+                                    .customer(loan.getCustomer())
+                                    .customerEmail(loan.getCustomerEmail())
+                                    .occurredAt(now)
+                                    .build())
+                            .collect(Collectors.toList())
+            );
+        }
+
+        return LoanReturnReportDTO.builder()
+                .received(loanIds.size() + loanIsbns.size())
+                .returned(returned)
+                .results(results)
+                .build();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO dto, Pageable pageRequest) {
         return repository.findByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), pageRequest);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Slice<Loan> findAfter(LoanFilterDTO dto, long afterId, int size) {
+        return repository.findByBookIsbnOrCustomerAfter(
+                dto.getIsbn(),
+                dto.getCustomer(),
+                afterId,
+                PageRequest.of(0, size)
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(4);
+        return repository.findByDueDateBeforeAndNotReturned(LocalDate.now());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Loan> getOverdueLoans(Pageable pageRequest) {
+        return repository.findOverdue(LocalDate.now(), pageRequest);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LateLoanEmail> getLateLoanEmails(long afterId, int size) {
+        return repository.findLateLoanEmailsAfter(LocalDate.now(), afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countOpenLoans() {
+        return repository.countOpen();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countLateLoans() {
+        return repository.countDueDateBeforeAndNotReturned(LocalDate.now());
+    }
+
+    private static LoanEventDTO event(LoanEventDTO.Type type, Loan loan) {
+        return LoanEventDTO.builder()
+                .type(type)
+                .loanId(loan.getId())
+                .isbn(loan.getBook() == null ? null : loan.getBook().getIsbn())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .loanDate(loan.getLoanDate())
+                .dueDate(loan.getDueDate())
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Open loans are returned once, even when asked for both by id and by isbn.
+     */
+    private static LoanReturnResultDTO.Status status(ReturnableLoan loan, Set<Long> returning) {
+        return loan.getActiveBookId() != null && returning.add(loan.getId())
+                ? LoanReturnResultDTO.Status.RETURNED
+                : LoanReturnResultDTO.Status.ALREADY_RETURNED;
+    }
+
+    private static <T> Set<T> distinct(List<T> values) {
+        if (values == null) {
+            return Collections.emptySet();
+        }
+
+        return values.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static boolean isActiveBookViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+
+                return constraintName != null
+                        && constraintName.toLowerCase().contains(Loan.ACTIVE_BOOK_CONSTRAINT);
+            }
+        }
 
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return false;
     }
 
     @Autowired
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository, OutboxService outboxService, LoanPeriodPolicy loanPeriodPolicy) {
         this.repository = repository;
+        this.outboxService = outboxService;
+        this.loanPeriodPolicy = loanPeriodPolicy;
     }
 }
@@ -0,0 +1,407 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.IndexedIsbn;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Maps ISBNs, packed as longs by {@link Isbn#pack}, to book ids in an open addressing table held in a memory mapped
+ * file, so it takes next to no heap and a restarted instance is warm at once.
+ * <p>
+ * Books inserted and deleted through JPA are applied once committed. The header records whether
+ * the file was closed cleanly, and the number of books and highest id it was built for; on
+ * startup the table is rebuilt from the database unless those still match. Books written by other
+ * instances are never seen, so only enable it for a single instance owning its database.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "application.books.isbn-index.enabled", havingValue = "true")
+public class MappedIsbnIndex implements IsbnIndex, PostInsertEventListener, PostDeleteEventListener, DisposableBean {
+    private static final int MAGIC = 0x4953424e;
+    // 2: ISBN-10s and ISBN-13s with a valid check digit only
+    private static final int FORMAT = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 4;
+    private static final int CLEAN_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int USED_OFFSET = 20;
+    private static final int BOOK_COUNT_OFFSET = 24;
+    private static final int MAX_ID_OFFSET = 32;
+
+    // a slot is the packed ISBN followed by the book id
+    private static final int SLOT_SIZE = 16;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    private static final double MAX_LOAD = 0.7;
+    // slots are addressed by int offsets into a single mapping
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final BookRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Path path;
+    private final int initialCapacity;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer table;
+    private volatile boolean open;
+
+    public MappedIsbnIndex(
+            BookRepository repository,
+            EntityManagerFactory entityManagerFactory,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.books.isbn-index.path:${java.io.tmpdir}/library-api/isbn-index.bin}") Path path,
+            @Value("${application.books.isbn-index.initial-capacity:1024}") int initialCapacity) throws IOException {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.path = path.toAbsolutePath();
+        this.initialCapacity = initialCapacity;
+
+        // registered before the table is checked, so no committed change falls in between
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, (PostInsertEventListener) this);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, (PostDeleteEventListener) this);
+
+        open();
+    }
+
+    @Override
+    public boolean covers(String isbn) {
+        return open && Isbn.pack(isbn) > 0;
+    }
+
+    @Override
+    public OptionalLong find(String isbn) {
+        long key = Isbn.pack(isbn);
+
+        lock.readLock().lock();
+        try {
+            if (!open) {
+                throw new IllegalStateException("The ISBN index is closed!");
+            }
+
+            int slot = slotOf(table, key);
+            return slot < 0 ? OptionalLong.empty() : OptionalLong.of(table.getLong(offset(slot) + 8));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!(event.getEntity() instanceof Book)) {
+            return;
+        }
+
+        Book book = (Book) event.getEntity();
+        update(() -> {
+            long key = Isbn.pack(book.getIsbn());
+            if (key > 0) {
+                if (table.getInt(USED_OFFSET) + 1 > table.getInt(CAPACITY_OFFSET) * MAX_LOAD) {
+                    rehash(capacityFor(table.getInt(SIZE_OFFSET) + 1));
+                }
+
+                put(table, key, book.getId());
+            }
+
+            table.putLong(BOOK_COUNT_OFFSET, table.getLong(BOOK_COUNT_OFFSET) + 1);
+            table.putLong(MAX_ID_OFFSET, Math.max(table.getLong(MAX_ID_OFFSET), book.getId()));
+        });
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!(event.getEntity() instanceof Book)) {
+            return;
+        }
+
+        Book book = (Book) event.getEntity();
+        update(() -> {
+            // an invalid ISBN packs as DELETED, which would match a deleted slot
+            long key = Isbn.pack(book.getIsbn());
+            int slot = key > 0 ? slotOf(table, key) : -1;
+            if (slot >= 0) {
+                table.putLong(offset(slot), DELETED);
+                table.putInt(SIZE_OFFSET, table.getInt(SIZE_OFFSET) - 1);
+            }
+
+            table.putLong(BOOK_COUNT_OFFSET, table.getLong(BOOK_COUNT_OFFSET) - 1);
+        });
+    }
+
+    // applied after commit, so a rolled back change never reaches the table
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                table.putInt(CLEAN_OFFSET, 1);
+                table.force();
+                open = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Maps the index file, rebuilding it first unless it is still current. Called on creation,
+     * and again to reopen the index after {@link #destroy()}.
+     */
+    public void open() throws IOException {
+        Long maxId = repository.findMaxId();
+        long books = repository.count();
+
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                return;
+            }
+
+            if (!reuse(books, maxId == null ? 0 : maxId)) {
+                rebuild(books);
+            }
+
+            table.putInt(CLEAN_OFFSET, 0);
+            open = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean reuse(long books, long maxId) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+
+        MappedByteBuffer mapped = map(path, Files.size(path));
+        boolean current = mapped.getInt(MAGIC_OFFSET) == MAGIC &&
+                mapped.getInt(FORMAT_OFFSET) == FORMAT &&
+                mapped.getInt(CLEAN_OFFSET) == 1 &&
+                Files.size(path) == HEADER_SIZE + (long) mapped.getInt(CAPACITY_OFFSET) * SLOT_SIZE &&
+                mapped.getLong(BOOK_COUNT_OFFSET) == books &&
+                mapped.getLong(MAX_ID_OFFSET) == maxId;
+
+        if (current) {
+            log.info("Opened the ISBN index {} holding {} ISBNs", path, mapped.getInt(SIZE_OFFSET));
+            table = mapped;
+        }
+
+        return current;
+    }
+
+    private void rebuild(long books) throws IOException {
+        log.info("Rebuilding the ISBN index {} for {} books", path, books);
+
+        Path rebuilt = temporaryPath();
+        MappedByteBuffer fresh = create(rebuilt, capacityFor(books));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<IndexedIsbn> isbns = repository.streamIndexedIsbns()) {
+                isbns.forEach(book -> {
+                    long key = Isbn.pack(book.getIsbn());
+                    if (key > 0) {
+                        put(fresh, key, book.getId());
+                    }
+
+                    fresh.putLong(BOOK_COUNT_OFFSET, fresh.getLong(BOOK_COUNT_OFFSET) + 1);
+                    fresh.putLong(MAX_ID_OFFSET, Math.max(fresh.getLong(MAX_ID_OFFSET), book.getId()));
+                });
+            }
+        });
+
+        replace(rebuilt, fresh);
+    }
+
+    /**
+     * Copies the live slots into a table of the given capacity, dropping the deleted ones.
+     */
+    private void rehash(int capacity) throws IOException {
+        Path rehashed = temporaryPath();
+        MappedByteBuffer fresh = create(rehashed, capacity);
+
+        for (int slot = 0; slot < table.getInt(CAPACITY_OFFSET); slot++) {
+            long key = table.getLong(offset(slot));
+            if (key > 0) {
+                put(fresh, key, table.getLong(offset(slot) + 8));
+            }
+        }
+        fresh.putLong(BOOK_COUNT_OFFSET, table.getLong(BOOK_COUNT_OFFSET));
+        fresh.putLong(MAX_ID_OFFSET, table.getLong(MAX_ID_OFFSET));
+        fresh.putInt(CLEAN_OFFSET, table.getInt(CLEAN_OFFSET));
+
+        replace(rehashed, fresh);
+    }
+
+    private void replace(Path file, MappedByteBuffer fresh) throws IOException {
+        fresh.force();
+        Files.move(file, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        table = fresh;
+    }
+
+    private void update(IndexUpdate update) {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                update.apply();
+            }
+        } catch (IOException | RuntimeException e) {
+            // lookups fall back to the database from now on, and the table is rebuilt on restart
+            log.error("Could not update the ISBN index {}, closing it", path, e);
+            open = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int capacityFor(long isbns) {
+        long capacity = Integer.highestOneBit(Math.max(initialCapacity, 16));
+        if (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+
+        // room to grow by as much again before the next rehash
+        while (capacity * MAX_LOAD / 2 < isbns) {
+            capacity <<= 1;
+        }
+
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Too many ISBNs for the ISBN index: " + isbns);
+        }
+
+        return (int) capacity;
+    }
+
+    private Path temporaryPath() {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private static MappedByteBuffer create(Path file, int capacity) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+
+        MappedByteBuffer buffer = map(file, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(FORMAT_OFFSET, FORMAT);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+
+        return buffer;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void put(MappedByteBuffer table, long key, long id) {
+        int capacity = table.getInt(CAPACITY_OFFSET);
+        int mask = capacity - 1;
+        int free = -1;
+
+        int slot = home(key, mask);
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            long current = table.getLong(offset(slot));
+
+            if (current == key) {
+                table.putLong(offset(slot) + 8, id);
+                return;
+            }
+
+            if (current == DELETED && free < 0) {
+                free = slot;
+            } else if (current == EMPTY) {
+                if (free < 0) {
+                    free = slot;
+                    table.putInt(USED_OFFSET, table.getInt(USED_OFFSET) + 1);
+                }
+
+                break;
+            }
+        }
+
+        // every slot probed, without an empty one nor a deleted one to take over
+        if (free < 0) {
+            throw new IllegalStateException("The ISBN index is full!");
+        }
+
+        table.putLong(offset(free) + 8, id);
+        table.putLong(offset(free), key);
+        table.putInt(SIZE_OFFSET, table.getInt(SIZE_OFFSET) + 1);
+    }
+
+    private static int slotOf(MappedByteBuffer table, long key) {
+        int capacity = table.getInt(CAPACITY_OFFSET);
+        int mask = capacity - 1;
+
+        int slot = home(key, mask);
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            long current = table.getLong(offset(slot));
+
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int home(long key, int mask) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private interface IndexUpdate {
+        void apply() throws IOException;
+    }
+}
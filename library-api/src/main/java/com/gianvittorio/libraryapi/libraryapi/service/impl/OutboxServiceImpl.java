@@ -0,0 +1,160 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.OutboxEvent;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.OutboxEventRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanEventConsumer;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox of loan events. Events are appended in the transaction of the loan change
+ * and relayed in batches, oldest first, to every {@link LoanEventConsumer}; relayed events are
+ * deleted, failed ones are retried until they run out of attempts.
+ * <p>
+ * The relay runs on the scheduler thread of this instance only; running several instances
+ * against one database would relay events more than once.
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+    private final OutboxEventRepository repository;
+    private final List<LoanEventConsumer> consumers;
+    private final ObjectMapper objectMapper;
+
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+
+    public OutboxServiceImpl(
+            OutboxEventRepository repository,
+            List<LoanEventConsumer> consumers,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${application.outbox.relay.batch-size:100}") int batchSize,
+            @Value("${application.outbox.relay.max-attempts:5}") int maxAttempts) {
+        this.repository = repository;
+        this.consumers = consumers;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+
+        relayedCounter = Counter.builder("library.outbox.relayed")
+                .description("Loan events relayed to the consumers")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("library.outbox.failed")
+                .description("Loan event deliveries which failed and are to be retried")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Joins the transaction of the caller, which must be the one changing the loans.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(List<LoanEventDTO> events) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<OutboxEvent> outboxEvents = events.stream()
+                .map(event -> OutboxEvent.builder()
+                        .type(event.getType().name())
+                        .loanId(event.getLoanId())
+                        .payload(write(event))
+                        .createdAt(now)
+                        .attempts(0)
+                        .build())
+                .collect(Collectors.toList());
+
+        repository.saveAll(outboxEvents);
+    }
+
+    /**
+     * Relays batches until the outbox is drained or a batch fails.
+     */
+    @Scheduled(
+            fixedDelayString = "${application.outbox.relay.interval:PT1S}",
+            initialDelayString = "${application.outbox.relay.interval:PT1S}"
+    )
+    @Transactional
+    @Override
+    public int relay() {
+        int relayed = 0;
+        List<OutboxEvent> batch;
+
+        do {
+            batch = repository.findPending(maxAttempts, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = batch.stream()
+                    .map(OutboxEvent::getId)
+                    .collect(Collectors.toList());
+
+            try {
+                List<LoanEventDTO> events = batch.stream()
+                        .map(this::read)
+                        .collect(Collectors.toList());
+
+                consumers.forEach(consumer -> consumer.consume(events));
+            } catch (RuntimeException e) {
+                log.warn("Failed to relay {} loan events, up to event id {}", ids.size(), ids.get(ids.size() - 1), e);
+
+                repository.markFailed(ids, abbreviate(String.valueOf(e.getMessage())));
+                failedCounter.increment(ids.size());
+
+                return relayed;
+            }
+
+            repository.deleteByIdIn(ids);
+
+            relayed += ids.size();
+            relayedCounter.increment(ids.size());
+        } while (batch.size() == batchSize);
+
+        if (relayed > 0) {
+            log.info("Relayed {} loan events", relayed);
+        }
+
+        return relayed;
+    }
+
+    private String write(LoanEventDTO event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write loan event of loan " + event.getLoanId(), e);
+        }
+    }
+
+    private LoanEventDTO read(OutboxEvent outboxEvent) {
+        try {
+            LoanEventDTO event = objectMapper.readValue(outboxEvent.getPayload(), LoanEventDTO.class);
+            event.setEventId(outboxEvent.getId());
+
+            return event;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read loan event " + outboxEvent.getId(), e);
+        }
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 1000 ? text : text.substring(0, 1000);
+    }
+}
@@ -0,0 +1,217 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.LegacyIsbns;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveBookService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Profile("reactive")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+    /**
+     * Allocation size of {@code book_sequence}, shared with the JPA mapping of {@link Book}.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> BOOK_ORDER = Map.of(
+            "id", "b.id",
+            "title", "b.title",
+            "author", "b.author",
+            "isbn", "b.isbn"
+    );
+
+    private final DatabaseClient client;
+    private final LegacyIsbns legacyIsbns;
+
+    private final IdBlock ids = new IdBlock();
+
+    public ReactiveBookServiceImpl(DatabaseClient client, LegacyIsbns legacyIsbns) {
+        this.client = client;
+        this.legacyIsbns = legacyIsbns;
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+
+        return client.sql("select count(*) from book where isbn = :isbn")
+                .bind("isbn", book.getIsbn())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(count -> count > 0
+                        ? Mono.<Long>error(new BusinessException("ISBN already exists!"))
+                        : nextId())
+                .flatMap(id -> {
+                    GenericExecuteSpec insert = client.sql(
+                            "insert into book (id, title, author, isbn) values (:id, :title, :author, :isbn)"
+                    ).bind("id", id);
+                    insert = ReactiveRows.bind(insert, "title", book.getTitle(), String.class);
+                    insert = ReactiveRows.bind(insert, "author", book.getAuthor(), String.class);
+                    insert = ReactiveRows.bind(insert, "isbn", book.getIsbn(), String.class);
+
+                    return insert.fetch()
+                            .rowsUpdated()
+                            .then(Mono.fromSupplier(() -> {
+                                book.setId(id);
+                                return book;
+                            }));
+                })
+                .onErrorMap(
+                        e -> e instanceof DataIntegrityViolationException
+                                && ReactiveRows.violates((DataIntegrityViolationException) e, Book.ISBN_CONSTRAINT),
+                        e -> new BusinessException("ISBN already exists!")
+                );
+    }
+
+    @Override
+    public Mono<Book> getById(Long id) {
+        return client.sql("select " + ReactiveRows.BOOK_COLUMNS + " from book b where b.id = :id")
+                .bind("id", id)
+                .map(ReactiveRows::book)
+                .one();
+    }
+
+    @Override
+    public Mono<Void> delete(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id cannot be null!"));
+        }
+
+        return client.sql("delete from book where id = :id")
+                .bind("id", book.getId())
+                .then();
+    }
+
+    @Override
+    public Mono<Book> update(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id cannot be null!"));
+        }
+
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+
+        GenericExecuteSpec update = client.sql(
+                "update book set title = :title, author = :author, isbn = :isbn, version = version + 1 where id = :id"
+        ).bind("id", book.getId());
+        update = ReactiveRows.bind(update, "title", book.getTitle(), String.class);
+        update = ReactiveRows.bind(update, "author", book.getAuthor(), String.class);
+        update = ReactiveRows.bind(update, "isbn", book.getIsbn(), String.class);
+
+        return update.fetch()
+                .rowsUpdated()
+                .thenReturn(book);
+    }
+
+    /**
+     * Matches the given title, author and isbn ignoring case, as the example query of the
+     * blocking service does.
+     */
+    @Override
+    public Flux<Book> find(Book filter, Pageable pageRequest) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, String> values = new LinkedHashMap<>();
+
+        if (filter.getTitle() != null) {
+            conditions.add("lower(b.title) like :title");
+            values.put("title", ReactiveRows.containing(filter.getTitle()));
+        }
+        if (filter.getAuthor() != null) {
+            conditions.add("lower(b.author) like :author");
+            values.put("author", ReactiveRows.containing(filter.getAuthor()));
+        }
+        if (filter.getIsbn() != null) {
+            conditions.add("lower(b.isbn) like :isbn");
+            values.put("isbn", ReactiveRows.containing(filter.getIsbn()));
+        }
+
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+
+        GenericExecuteSpec select = client.sql(
+                "select " + ReactiveRows.BOOK_COLUMNS + " from book b" + where +
+                        ReactiveRows.page(pageRequest, BOOK_ORDER, "b.id")
+        );
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            select = select.bind(value.getKey(), value.getValue());
+        }
+
+        return select.map(ReactiveRows::book)
+                .all();
+    }
+
+    @Override
+    public Mono<Book> getBookByIsbn(String isbn) {
+        // books are stored by their ISBN-13, and only legacy books by an invalid ISBN
+        long packed = Isbn.pack(isbn);
+        if (packed == Isbn.INVALID && !legacyIsbns.contains(isbn)) {
+            return Mono.empty();
+        }
+
+        return client.sql("select " + ReactiveRows.BOOK_COLUMNS + " from book b where b.isbn = :isbn")
+                .bind("isbn", packed == Isbn.INVALID ? isbn : Long.toString(packed))
+                .map(ReactiveRows::book)
+                .one();
+    }
+
+    @Override
+    public Flux<Loan> getLoansByBook(Book book, Pageable pageable) {
+        return client.sql(ReactiveRows.LOAN_SELECT + " where l.id_book = :book" +
+                        ReactiveRows.page(pageable, ReactiveRows.LOAN_ORDER, "l.loan_date desc"))
+                .bind("book", book.getId())
+                .map(ReactiveRows::loan)
+                .all();
+    }
+
+    /**
+     * Reserves ids the way Hibernate's pooled optimizer does: each value read from the sequence
+     * is the top of a block of {@link #ALLOCATION_SIZE} ids, so books created here and through JPA
+     * never share an id. The first value of the sequence is skipped, as Hibernate treats it
+     * specially.
+     */
+    private Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            Long id = ids.next();
+
+            return id != null
+                    ? Mono.just(id)
+                    : nextHi().map(ids::reset);
+        });
+    }
+
+    private Mono<Long> nextHi() {
+        return client.sql("select nextval('book_sequence')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(hi -> hi < ALLOCATION_SIZE ? nextHi() : Mono.just(hi));
+    }
+
+    private static class IdBlock {
+        private long next = 1;
+        private long hi;
+
+        synchronized Long next() {
+            return next <= hi ? next++ : null;
+        }
+
+        synchronized long reset(long hi) {
+            this.hi = hi;
+            next = hi - ALLOCATION_SIZE + 1;
+
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveLoanService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@Service
+@Profile("reactive")
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+    private final DatabaseClient client;
+
+    private final LoanPeriodPolicy loanPeriodPolicy;
+
+    public ReactiveLoanServiceImpl(DatabaseClient client, LoanPeriodPolicy loanPeriodPolicy) {
+        this.client = client;
+        this.loanPeriodPolicy = loanPeriodPolicy;
+    }
+
+    @Override
+    public Mono<Loan> save(Loan loan) {
+        loan.markActiveBook();
+        if (loan.getDueDate() == null && loan.getLoanDate() != null) {
+            loan.setDueDate(loanPeriodPolicy.dueDate(loan));
+        }
+
+        GenericExecuteSpec insert = client.sql(
+                "insert into loan (customer, customer_email, loan_date, due_date, returned, id_book, active_book_id) " +
+                        "values (:customer, :email, :loanDate, :dueDate, :returned, :book, :activeBook)"
+        );
+        insert = ReactiveRows.bind(insert, "customer", loan.getCustomer(), String.class);
+        insert = ReactiveRows.bind(insert, "email", loan.getCustomerEmail(), String.class);
+        insert = ReactiveRows.bind(insert, "loanDate", loan.getLoanDate(), LocalDate.class);
+        insert = ReactiveRows.bind(insert, "dueDate", loan.getDueDate(), LocalDate.class);
+        insert = ReactiveRows.bind(insert, "returned", loan.getReturned(), Boolean.class);
+        insert = ReactiveRows.bind(insert, "book", loan.getBook() == null ? null : loan.getBook().getId(), Long.class);
+        insert = ReactiveRows.bind(insert, "activeBook", loan.getActiveBookId(), Long.class);
+
+        return insert.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(id -> {
+                    loan.setId(id);
+                    return loan;
+                })
+                .onErrorMap(ReactiveLoanServiceImpl::isActiveBookViolation, this::bookLoaned);
+    }
+
+    @Override
+    public Mono<Loan> getById(Long id) {
+        return client.sql(ReactiveRows.LOAN_SELECT + " where l.id = :id")
+                .bind("id", id)
+                .map(ReactiveRows::loan)
+                .one();
+    }
+
+    /**
+     * Updates the return flag, opening or closing the loan's hold on its book accordingly.
+     */
+    @Override
+    public Mono<Loan> update(Loan loan) {
+        loan.markActiveBook();
+
+        GenericExecuteSpec update = client.sql(
+                "update loan set returned = :returned, active_book_id = :activeBook where id = :id"
+        ).bind("id", loan.getId());
+        update = ReactiveRows.bind(update, "returned", loan.getReturned(), Boolean.class);
+        update = ReactiveRows.bind(update, "activeBook", loan.getActiveBookId(), Long.class);
+
+        return update.fetch()
+                .rowsUpdated()
+                .thenReturn(loan)
+                .onErrorMap(ReactiveLoanServiceImpl::isActiveBookViolation, this::bookLoaned);
+    }
+
+    @Override
+    public Flux<Loan> find(LoanFilterDTO dto, Pageable pageRequest) {
+        GenericExecuteSpec select = client.sql(
+                ReactiveRows.LOAN_SELECT + " where b.isbn = :isbn or l.customer = :customer" +
+                        ReactiveRows.page(pageRequest, ReactiveRows.LOAN_ORDER, "l.id")
+        );
+        select = ReactiveRows.bind(select, "isbn", Isbn.normalize(dto.getIsbn()), String.class);
+        select = ReactiveRows.bind(select, "customer", dto.getCustomer(), String.class);
+
+        return select.map(ReactiveRows::loan)
+                .all();
+    }
+
+    private static boolean isActiveBookViolation(Throwable e) {
+        return e instanceof DataIntegrityViolationException
+                && ReactiveRows.violates((DataIntegrityViolationException) e, Loan.ACTIVE_BOOK_CONSTRAINT);
+    }
+
+    private Throwable bookLoaned(Throwable e) {
+        return new BusinessException("Book is currently loaned!");
+    }
+}
@@ -0,0 +1,97 @@
+package com.gianvittorio.libraryapi.libraryapi.service.impl;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import io.r2dbc.spi.Row;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * SQL fragments and row mapping shared by the R2DBC services, which map rows by hand as there
+ * are no R2DBC entities.
+ */
+final class ReactiveRows {
+    static final String BOOK_COLUMNS = "b.id as book_id, b.title as book_title, b.author as book_author, b.isbn as book_isbn";
+
+    static final String LOAN_SELECT = "select l.id as loan_id, l.customer as loan_customer, " +
+            "l.customer_email as loan_customer_email, l.loan_date as loan_loan_date, l.due_date as loan_due_date, " +
+            "l.returned as loan_returned, " +
+            BOOK_COLUMNS + " from loan l join book b on b.id = l.id_book";
+
+    /**
+     * Columns which loan listings may be sorted by, by property name.
+     */
+    static final Map<String, String> LOAN_ORDER = Map.of(
+            "id", "l.id",
+            "customer", "l.customer",
+            "loanDate", "l.loan_date",
+            "dueDate", "l.due_date"
+    );
+
+    private ReactiveRows() {
+    }
+
+    static Book book(Row row) {
+        return Book.builder()
+                .id(row.get("book_id", Long.class))
+                .title(row.get("book_title", String.class))
+                .author(row.get("book_author", String.class))
+                .isbn(row.get("book_isbn", String.class))
+                .build();
+    }
+
+    static Loan loan(Row row) {
+        return Loan.builder()
+                .id(row.get("loan_id", Long.class))
+                .customer(row.get("loan_customer", String.class))
+                .customerEmail(row.get("loan_customer_email", String.class))
+                .loanDate(row.get("loan_loan_date", LocalDate.class))
+                .dueDate(row.get("loan_due_date", LocalDate.class))
+                .returned(row.get("loan_returned", Boolean.class))
+                .book(book(row))
+                .build();
+    }
+
+    static GenericExecuteSpec bind(GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    /**
+     * Pages with limit and offset, ordering by the requested properties which have a column in
+     * {@code columns} and by {@code defaultOrder} otherwise.
+     */
+    static String page(Pageable pageable, Map<String, String> columns, String defaultOrder) {
+        String order = pageable.getSort()
+                .stream()
+                .filter(sortOrder -> columns.containsKey(sortOrder.getProperty()))
+                .map(sortOrder -> columns.get(sortOrder.getProperty()) + (sortOrder.isAscending() ? " asc" : " desc"))
+                .collect(Collectors.joining(", "));
+
+        String orderBy = " order by " + (order.isEmpty() ? defaultOrder : order);
+
+        return pageable.isUnpaged()
+                ? orderBy
+                : orderBy + " limit " + pageable.getPageSize() + " offset " + pageable.getOffset();
+    }
+
+    /**
+     * Escapes the wildcards of a value matched with {@code like}, as Spring Data does for
+     * containing matches.
+     */
+    static String containing(String value) {
+        return "%" + value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    static boolean violates(DataIntegrityViolationException e, String constraint) {
+        return String.valueOf(e.getMessage()).toLowerCase().contains(constraint);
+    }
+}
@@ -0,0 +1,13 @@
+package com.gianvittorio.libraryapi.libraryapi.validation;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class IsbnValidator implements ConstraintValidator<ValidIsbn, CharSequence> {
+    @Override
+    public boolean isValid(CharSequence isbn, ConstraintValidatorContext context) {
+        return isbn == null || Isbn.isValid(isbn);
+    }
+}
@@ -0,0 +1,144 @@
+package db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites valid ISBNs as their ISBN-13 digits, the form books are now stored and looked up in.
+ * Other values are left as they are.
+ * <p>
+ * Books whose ISBNs would end up the same, say one stored as an ISBN-10 and another as its
+ * ISBN-13, would break {@code uk_book_isbn}. They are left as they are and reported, to be
+ * merged by hand.
+ * <p>
+ * The normalization is a frozen copy of the one of {@code Isbn} at the time of this migration, so
+ * later changes to the application cannot change what this migration did.
+ */
+@Slf4j
+public class V6__normalize_isbns extends BaseJavaMigration {
+    static final long INVALID = -1;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        // books to rewrite by their ISBN-13, and the ISBN-13s already stored as such
+        Map<String, List<Long>> rewrites = new HashMap<>();
+        Set<String> normalizedIsbns = new HashSet<>();
+
+        try (Statement select = connection.createStatement();
+             ResultSet books = select.executeQuery("select id, isbn from book")) {
+            while (books.next()) {
+                String isbn = books.getString("isbn");
+                String normalized = normalize(isbn);
+
+                if (normalized == null) {
+                    continue;
+                }
+
+                if (normalized.equals(isbn)) {
+                    normalizedIsbns.add(isbn);
+                } else {
+                    rewrites.computeIfAbsent(normalized, key -> new ArrayList<>())
+                            .add(books.getLong("id"));
+                }
+            }
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("update book set isbn = ? where id = ?")) {
+            for (Map.Entry<String, List<Long>> rewrite : rewrites.entrySet()) {
+                String normalized = rewrite.getKey();
+                List<Long> ids = rewrite.getValue();
+
+                if (ids.size() > 1 || normalizedIsbns.contains(normalized)) {
+                    log.warn("Books {} share ISBN {} with each other or with another book, left as they are",
+                            ids, normalized);
+                    continue;
+                }
+
+                update.setString(1, normalized);
+                update.setLong(2, ids.get(0));
+                update.addBatch();
+            }
+
+            update.executeBatch();
+        }
+    }
+
+    private static String normalize(String isbn) {
+        long value = pack(isbn);
+
+        return value == INVALID ? isbn : Long.toString(value);
+    }
+
+    // also used by later migrations which tell valid ISBNs apart, so they all agree on the same rules
+    static long pack(String isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int isbn10Sum = 0, isbn13Sum = 0, prefixedSum = 38;
+        boolean checkX = false;
+
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+
+            int digit;
+            if (c >= '0' && c <= '9' && !checkX) {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                digit = 10;
+                checkX = true;
+            } else {
+                return INVALID;
+            }
+
+            if (digits == 13) {
+                return INVALID;
+            }
+
+            isbn10Sum += digit * (10 - digits);
+            isbn13Sum += digit * (digits % 2 == 0 ? 1 : 3);
+            if (digits < 9) {
+                prefixedSum += digit * (digits % 2 == 0 ? 3 : 1);
+                value = value * 10 + digit;
+            } else if (!checkX) {
+                value = value * 10 + digit;
+            }
+            digits++;
+        }
+
+        if (digits == 10) {
+            if (isbn10Sum % 11 != 0) {
+                return INVALID;
+            }
+
+            long body = 978_000_000_000L + value / (checkX ? 1 : 10);
+            return body * 10 + (10 - prefixedSum % 10) % 10;
+        }
+
+        if (digits == 13 && !checkX && isbn13Sum % 10 == 0) {
+            long prefix = value / 10_000_000_000L;
+            return prefix == 978 || prefix == 979 ? value : INVALID;
+        }
+
+        return INVALID;
+    }
+}
@@ -0,0 +1,39 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Flags the books stored with an invalid ISBN, from before ISBNs were validated. Such ISBNs can no
+ * longer be saved, so these are the only ones worth looking up; any other invalid ISBN is a miss.
+ */
+public class V7__flag_legacy_isbns extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        try (Statement alter = connection.createStatement()) {
+            alter.execute("alter table book add column legacy_isbn boolean default false not null");
+        }
+
+        try (Statement select = connection.createStatement();
+             ResultSet books = select.executeQuery("select id, isbn from book");
+             PreparedStatement update = connection.prepareStatement("update book set legacy_isbn = true where id = ?")) {
+            while (books.next()) {
+                String isbn = books.getString("isbn");
+
+                if (isbn != null && V6__normalize_isbns.pack(isbn) == V6__normalize_isbns.INVALID) {
+                    update.setLong(1, books.getLong("id"));
+                    update.addBatch();
+                }
+            }
+
+            update.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+create sequence book_sequence start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    author varchar(255),
+    isbn varchar(255),
+    title varchar(255),
+    primary key (id)
+);
+
+create table loan (
+    id bigint generated by default as identity,
+    active_book_id bigint,
+    customer varchar(100),
+    customer_email varchar(255),
+    loan_date date,
+    returned boolean,
+    id_book bigint,
+    primary key (id)
+);
+
+create table email_dead_letter (
+    id bigint generated by default as identity,
+    attempts integer,
+    failed_at timestamp,
+    last_error varchar(1000),
+    recipient varchar(255),
+    subject varchar(255),
+    text varchar(1000),
+    primary key (id)
+);
+
+alter table loan add constraint fk_loan_book foreign key (id_book) references book;
+alter table loan add constraint uk_loan_active_book unique (active_book_id);
+
+create index idx_loan_book_loan_date on loan (id_book, loan_date);
@@ -0,0 +1,8 @@
+-- existsByIsbn / findByIsbn, and no two books may share an ISBN
+create unique index uk_book_isbn on book (isbn);
+
+-- customer filter of the loan search; id_book lookups are served by idx_loan_book_loan_date
+create index idx_loan_customer on loan (customer);
+
+-- late loan scan; on PostgreSQL a partial index on (loan_date) where returned is not true is smaller
+create index idx_loan_loan_date_returned on loan (loan_date, returned);
@@ -0,0 +1,2 @@
+-- optimistic locking of books, exposed to clients as the ETag of a book
+alter table book add column version bigint default 0 not null;
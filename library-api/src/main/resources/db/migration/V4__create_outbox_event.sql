@@ -0,0 +1,11 @@
+-- loan events written along with the loan changes, relayed to the consumers and then deleted
+create table outbox_event (
+    id bigint generated by default as identity,
+    type varchar(50) not null,
+    loan_id bigint not null,
+    payload varchar(2000) not null,
+    created_at timestamp not null,
+    attempts integer default 0 not null,
+    last_error varchar(1000),
+    primary key (id)
+);
@@ -0,0 +1,10 @@
+-- due dates are set as loans are created; existing loans get the default loan period of 4 days,
+-- counting the loan date, so they are late from loan_date + 4 on as before
+alter table loan add column due_date date;
+-- date + integer adds days on both H2 and PostgreSQL
+update loan set due_date = loan_date + 3 where loan_date is not null;
+
+-- overdue scan is a range scan on the due date; on PostgreSQL a partial index on (due_date)
+-- where returned is not true is smaller
+drop index idx_loan_loan_date_returned;
+create index idx_loan_due_date_returned on loan (due_date, returned);
@@ -1,13 +1,29 @@
 package com.gianvittorio.libraryapi.libraryapi;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 class ApplicationTests {
+	@Autowired
+	MeterRegistry meterRegistry;
 
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void bookCachesExposeMetrics() {
+		assertThat(meterRegistry.find("cache.gets").tag("name", "books").meters())
+				.isNotEmpty();
+		assertThat(meterRegistry.find("cache.gets").tag("name", "booksByIsbn").meters())
+				.isNotEmpty();
+		assertThat(meterRegistry.find("cache.evictions").tag("name", "books").meters())
+				.isNotEmpty();
+	}
+
 }
@@ -2,10 +2,17 @@ package com.gianvittorio.libraryapi.libraryapi.controllerTest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportErrorDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportReportDTO;
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.resource.BookController;
+import com.gianvittorio.libraryapi.libraryapi.service.BookImportService;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -17,28 +24,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = BookController.class)
+@Import(SimpleMeterRegistry.class)
 @AutoConfigureMockMvc
 public class BookControllerTest {
     static String BOOK_API = "/api/v1/books";
@@ -46,22 +68,31 @@ public class BookControllerTest {
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @MockBean
     BookService service;
 
+    @MockBean
+    BookImportService importService;
+
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("Must successfully create a book.")
     public void createBookTest() throws Exception {
         BookDTO dto = BookDTO.builder()
                 .author("Artur")
                 .title("As Aventuras")
-                .isbn("001")
+                .isbn("9780132350884")
                 .build();
 
         Book savedBook = Book.builder().author("Artur")
                 .id(1l)
                 .title("As Aventuras")
-                .isbn("001")
+                .isbn("9780132350884")
                 .build();
 
         BDDMockito.given(service.save(any(Book.class)))
@@ -109,6 +140,31 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Must reject books whose ISBN has a wrong check digit without saving them.")
+    public void createBookWithInvalidIsbnTest() throws Exception {
+        BookDTO dto = BookDTO.builder()
+                .author("Artur")
+                .title("As Aventuras")
+                .isbn("978-0-13-235088-5")
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)))
+                .andExpect(jsonPath("errors[0]").value("must be a valid ISBN-10 or ISBN-13"));
+
+        Mockito.verify(service, Mockito.never()).save(any(Book.class));
+    }
+
     @Test
     @DisplayName("Must throw whenever trying to create book with duplicated ISBN.")
     public void createBookWithDuplicatedIsbn() throws Exception {
@@ -130,6 +186,9 @@ public class BookControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value(ERROR_MESSAGE));
+
+        assertThat(meterRegistry.counter("library.business.errors", "message", ERROR_MESSAGE).count())
+                .isEqualTo(1);
     }
 
     @Test
@@ -165,6 +224,38 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Must return the version as ETag, and 304 when the If-None-Match ETag is current.")
+    public void getBookNotModifiedTest() throws Exception {
+        // Given
+        Long id = 1l;
+
+        Book book = Book.builder()
+                .id(id)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .version(3l)
+                .build();
+
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(book));
+
+        // When
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + id))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        mvc.perform(request.header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     @DisplayName("Must throw ResourceNotFound exception when book is not found.")
     public void bookNotFoundTest() throws Exception {
@@ -238,7 +329,7 @@ public class BookControllerTest {
                 .isbn("321")
                 .build();
 
-        BDDMockito.given(service.update(updatingBook))
+        BDDMockito.given(service.update(updatedBook))
                 .willReturn(updatedBook);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + id))
@@ -254,6 +345,74 @@ public class BookControllerTest {
                 .andExpect(jsonPath("isbn").value("321"));
     }
 
+    @Test
+    @DisplayName("Must update book at the If-Match version, returning the new version as ETag.")
+    public void conditionalUpdateBookTest() throws Exception {
+        // Given
+        Long id = 1l;
+        String json = new ObjectMapper()
+                .writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("Any Title").author("Any Author").isbn("321").version(3l).build()));
+
+        BDDMockito.given(service.update(any(Book.class)))
+                .willAnswer(invocation -> {
+                    Book book = invocation.getArgument(0);
+                    return Book.builder()
+                            .id(book.getId())
+                            .title(book.getTitle())
+                            .author(book.getAuthor())
+                            .isbn(book.getIsbn())
+                            .version(book.getVersion() + 1)
+                            .build();
+                });
+
+        // When
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + id))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content(json);
+
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("title").value(createNewBook().getTitle()));
+
+        Mockito.verify(service)
+                .update(Mockito.argThat(book -> book.getVersion() == 2l));
+    }
+
+    @Test
+    @DisplayName("Must return 412 when the book was modified since the If-Match ETag was read.")
+    public void staleUpdateBookTest() throws Exception {
+        // Given
+        Long id = 1l;
+        String json = new ObjectMapper()
+                .writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(id))
+                .willReturn(Optional.of(Book.builder().id(id).title("Any Title").author("Any Author").isbn("321").version(3l).build()));
+
+        BDDMockito.given(service.update(any(Book.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, id));
+
+        // When
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + id))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content(json);
+
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors", hasSize(1)))
+                .andExpect(jsonPath("errors[0]").value("Book has been modified since it was read!"));
+    }
+
     @Test
     @DisplayName("Must return 404 whenever trying to update non existing book.")
     public void updateNonExistingBookTest() throws Exception {
@@ -307,11 +466,213 @@ public class BookControllerTest {
 
     }
 
+    @SneakyThrows
+    @Test
+    @DisplayName("Must search books by full-text query.")
+    public void searchBooksTest() {
+        Book book = Book.builder()
+                .id(1l)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.search(eq("clean code"), Mockito.any(Pageable.class)))
+                .willReturn(
+                        new PageImpl<Book>(List.of(book), PageRequest.of(0, 10), 1)
+                );
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?q=clean code&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("totalElements").value(1));
+
+        Mockito.verify(service, Mockito.never())
+                .find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must filter books by cursor, returning the cursor of the next page.")
+    public void findBooksByCursorTest() {
+        Book book = Book.builder()
+                .id(7l)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), eq(0l), eq(1)))
+                .willReturn(
+                        new SliceImpl<>(List.of(book), PageRequest.of(0, 1), true)
+                );
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=&size=1"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        String next = new ObjectMapper().readTree(
+                mvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                        .andExpect(jsonPath("content[0].id").value(7))
+                        .andExpect(jsonPath("size").value(1))
+                        .andExpect(jsonPath("next").isNotEmpty())
+                        .andExpect(jsonPath("totalElements").doesNotExist())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString()
+        ).get("next").asText();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), eq(7l), eq(1)))
+                .willReturn(
+                        new SliceImpl<>(List.of(), PageRequest.of(0, 1), false)
+                );
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?size=1&cursor=" + next)).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(0)))
+                .andExpect(jsonPath("next").isEmpty());
+
+        Mockito.verify(service, Mockito.never())
+                .find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Must return bad request whenever cursor is malformed.")
+    public void findBooksByInvalidCursorTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=@@@"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor!"));
+
+        Mockito.verify(service, Mockito.never())
+                .findAfter(Mockito.any(Book.class), anyLong(), anyInt());
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must list loans of book referred to by id.")
+    public void loansByBookTest() {
+        // Given
+        Book book = createNewBook();
+        book.setId(1l);
+
+        Loan loan = Loan.builder()
+                .id(2l)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .build();
+
+        BDDMockito.given(service.getById(1l))
+                .willReturn(Optional.of(book));
+        BDDMockito.given(service.getLoansByBook(Mockito.eq(book), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(List.of(loan), PageRequest.of(0, 10), 1));
+
+        // When
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(2))
+                .andExpect(jsonPath("content[0].customer").value("Fulano"))
+                .andExpect(jsonPath("content[0].email").value("fulano@email.com"))
+                .andExpect(jsonPath("content[0].isbn").value(book.getIsbn()))
+                .andExpect(jsonPath("content[0].book.id").value(1))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Must return 404 on listing loans of non existing book.")
+    public void loansByNonExistingBookTest() throws Exception {
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Optional.empty());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isNotFound());
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must import books from NDJSON, reporting rejected rows.")
+    public void importBooksTest() {
+        // Given
+        BookImportReportDTO report = BookImportReportDTO.builder()
+                .received(2)
+                .imported(1)
+                .errors(List.of(
+                        BookImportErrorDTO.builder()
+                                .line(2)
+                                .isbn("001")
+                                .message("ISBN already exists!")
+                                .build()
+                ))
+                .build();
+
+        BDDMockito.given(importService.importBooks(any(), Mockito.eq(BookImportService.Format.NDJSON)))
+                .willReturn(report);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/import"))
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"A\",\"author\":\"B\",\"isbn\":\"002\"}\n{\"title\":\"A\",\"author\":\"B\",\"isbn\":\"001\"}\n");
+
+        // When
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2))
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("errors", hasSize(1)))
+                .andExpect(jsonPath("errors[0].line").value(2))
+                .andExpect(jsonPath("errors[0].message").value("ISBN already exists!"));
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must stream the book export as NDJSON.")
+    public void exportBooksTest() {
+        // Given
+        BDDMockito.given(exportService.exportBooks(any(), Mockito.eq(ExportService.Format.NDJSON)))
+                .willAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(0);
+                    out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+
+                    return 2l;
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export"))
+                .accept("application/x-ndjson");
+
+        // When
+        MvcResult result = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.ndjson\""))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
     private static Book createNewBook() {
         return Book.builder()
                 .author("Artur")
                 .title("As Aventuras")
-                .isbn("001")
+                .isbn("9780132350884")
                 .build();
     }
 }
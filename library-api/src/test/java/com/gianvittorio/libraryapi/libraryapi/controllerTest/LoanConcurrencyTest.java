@@ -0,0 +1,169 @@
+package com.gianvittorio.libraryapi.libraryapi.controllerTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.OutboxEvent;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.OutboxEventRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import com.gianvittorio.libraryapi.libraryapi.service.LegacyIsbns;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.gianvittorio.libraryapi.libraryapi.repositoryTest.BookRepositoryTest.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "application.outbox.relay.interval=PT1H"
+)
+public class LoanConcurrencyTest {
+    private static String LOAN_API = "/api/v1/loan";
+
+    private static final int REQUESTS = 16;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    LegacyIsbns legacyIsbns;
+
+    @MockBean
+    EmailService emailService;
+
+    @AfterEach
+    public void tearDown() {
+        outboxEventRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must create a single loan out of many parallel requests for the same book.")
+    public void parallelCreateLoanTest() throws Exception {
+        // Given
+        Book book = bookRepository.save(newBook("9780134685991"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            LoanDTO dto = LoanDTO.builder()
+                    .isbn(book.getIsbn())
+                    .customer("Fulano " + i)
+                    .email("fulano" + i + "@email.com")
+                    .build();
+
+            Callable<ResponseEntity<String>> request = () -> {
+                start.await();
+
+                return restTemplate.postForEntity(LOAN_API, dto, String.class);
+            };
+            responses.add(executor.submit(request));
+        }
+
+        // When
+        start.countDown();
+
+        List<ResponseEntity<String>> results = new ArrayList<>();
+        for (Future<ResponseEntity<String>> response : responses) {
+            results.add(response.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(results)
+                .filteredOn(response -> response.getStatusCode() == HttpStatus.CREATED)
+                .hasSize(1);
+        assertThat(results)
+                .filteredOn(response -> response.getStatusCode() == HttpStatus.BAD_REQUEST)
+                .hasSize(REQUESTS - 1)
+                .allSatisfy(response -> assertThat(response.getBody())
+                        .contains("Book is currently loaned!"));
+        assertThat(loanRepository.count())
+                .isEqualTo(1);
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getType)
+                .containsExactly("LOAN_CREATED");
+    }
+
+    @Test
+    @DisplayName("Must loan a book stored with an invalid ISBN, from before ISBNs were validated.")
+    public void legacyIsbnLoanTest() {
+        // Given
+        Book book = bookRepository.save(newBook("LEGACY-0001"));
+        jdbcTemplate.update("update book set legacy_isbn = true where id = ?", book.getId());
+        legacyIsbns.load();
+
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("LEGACY-0001")
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(LOAN_API, dto, String.class);
+
+        // Then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        assertThat(loanRepository.findAll())
+                .extracting(loan -> loan.getBook().getId())
+                .containsExactly(book.getId());
+    }
+
+    @Test
+    @DisplayName("Must reply book not found for a loan without isbn.")
+    public void loanWithoutIsbnTest() {
+        // Given
+        LoanDTO dto = LoanDTO.builder()
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(LOAN_API, dto, String.class);
+
+        // Then
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody())
+                .contains("Book not found for provided Isbn!");
+    }
+}
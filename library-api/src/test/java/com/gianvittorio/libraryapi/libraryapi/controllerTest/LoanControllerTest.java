@@ -3,13 +3,18 @@ package com.gianvittorio.libraryapi.libraryapi.controllerTest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnRequestDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnResultDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.ReturnedLoanDTO;
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.resource.LoanController;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
 import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -21,16 +26,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Optional;
@@ -39,13 +50,16 @@ import static com.gianvittorio.libraryapi.libraryapi.serviceTest.LoanServiceTest
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = LoanController.class)
+@Import(SimpleMeterRegistry.class)
 @AutoConfigureMockMvc
 public class LoanControllerTest {
     private static String LOAN_API = "/api/v1/loan";
@@ -59,6 +73,9 @@ public class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private ExportService exportService;
+
     @Test
     @DisplayName("Must create loan.")
     public void createLoanTest() throws Exception {
@@ -189,6 +206,72 @@ public class LoanControllerTest {
                 .getById(anyLong());
     }
 
+    @Test
+    @DisplayName("Must return books in batch, reporting the result of each one.")
+    public void returnBooksTest() throws Exception {
+        // Given
+        LoanReturnRequestDTO dto = LoanReturnRequestDTO.builder()
+                .ids(Arrays.asList(1l, 2l))
+                .isbns(Arrays.asList("123"))
+                .build();
+
+        LoanReturnReportDTO report = LoanReturnReportDTO.builder()
+                .received(3)
+                .returned(1)
+                .results(Arrays.asList(
+                        LoanReturnResultDTO.builder().id(1l).isbn("321").status(LoanReturnResultDTO.Status.RETURNED).build(),
+                        LoanReturnResultDTO.builder().id(2l).isbn("456").status(LoanReturnResultDTO.Status.ALREADY_RETURNED).build(),
+                        LoanReturnResultDTO.builder().isbn("123").status(LoanReturnResultDTO.Status.NOT_FOUND).build()
+                ))
+                .build();
+
+        given(loanService.returnAll(dto.getIds(), dto.getIsbns()))
+                .willReturn(report);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto));
+
+        // When
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(3))
+                .andExpect(jsonPath("returned").value(1))
+                .andExpect(jsonPath("results", hasSize(3)))
+                .andExpect(jsonPath("results[1].status").value("ALREADY_RETURNED"))
+                .andExpect(jsonPath("results[2].status").value("NOT_FOUND"));
+
+        verify(loanService, Mockito.never())
+                .update(any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Must page overdue loans along with their due dates.")
+    public void findOverdueLoansTest() throws Exception {
+        // Given
+        Loan loan = newLoan();
+        loan.setId(1l);
+        loan.getBook().setIsbn("123");
+        loan.setDueDate(LocalDate.of(2020, 1, 5));
+
+        given(loanService.getOverdueLoans(any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat("/overdue?page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // When
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value("123"))
+                .andExpect(jsonPath("content[0].dueDate").value("2020-01-05"))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
     @Test
     @DisplayName("Must return 404 on trying to hand over non existing book")
     public void returnNonExistingBookTest() throws Exception {
@@ -247,4 +330,71 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
 
     }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must filter loans by cursor.")
+    public void findLoansByCursorTest() {
+        // Given
+        Loan loan = newLoan();
+        loan.setId(3l);
+        Book book = Book.builder().id(1l).isbn("321").build();
+        loan.setBook(book);
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), eq(0l), eq(10)))
+                .willReturn(
+                        new SliceImpl<>(Arrays.asList(loan), PageRequest.of(0, 10), false)
+                );
+
+        String queryString = String.format(
+                "?isbn=%s&customer=%s&size=10&cursor=",
+                book.getIsbn(),
+                loan.getCustomer()
+        );
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // When
+        // Then
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(3))
+                .andExpect(jsonPath("content[0].isbn").value("321"))
+                .andExpect(jsonPath("size").value(10))
+                .andExpect(jsonPath("next").isEmpty());
+
+        verify(loanService, Mockito.never())
+                .find(any(LoanFilterDTO.class), any(Pageable.class));
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must stream the loan history export as CSV.")
+    public void exportLoansTest() {
+        // Given
+        given(exportService.exportLoans(any(), eq(ExportService.Format.CSV)))
+                .willAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(0);
+                    out.write("id,customer\n1,Fulano\n".getBytes(StandardCharsets.UTF_8));
+
+                    return 1l;
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat("/export"))
+                .accept("text/csv");
+
+        // When
+        MvcResult result = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"loans.csv\""))
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("id,customer\n1,Fulano\n"));
+    }
 }
@@ -0,0 +1,244 @@
+package com.gianvittorio.libraryapi.libraryapi.controllerTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.ReturnedLoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.LegacyIsbns;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.TransactionManager;
+
+import static com.gianvittorio.libraryapi.libraryapi.repositoryTest.BookRepositoryTest.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Runs the reactive stack end to end, over R2DBC against the database also used through JPA.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // the test context picks the web stack before application-reactive.yml is read
+        properties = "spring.main.web-application-type=reactive"
+)
+public class ReactiveApiTest {
+    private static String BOOK_API = "/api/v1/books";
+
+    private static String LOAN_API = "/api/v1/loan";
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    LegacyIsbns legacyIsbns;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must run the transactional JPA services next to R2DBC, with a single transaction manager.")
+    public void transactionalServiceTest() {
+        // When
+        Throwable exception = catchThrowable(outboxService::relay);
+
+        // Then
+        assertThat(exception)
+                .isNull();
+        assertThat(context.getBeanNamesForType(TransactionManager.class))
+                .containsExactly("transactionManager");
+    }
+
+    @Test
+    @DisplayName("Must create, find and update books over R2DBC alongside books saved through JPA.")
+    public void booksTest() {
+        // Given
+        Book saved = bookRepository.save(newBook("9780132350884"));
+
+        // When
+        BookDTO created = client.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("Clean Code").author("Robert Martin").isbn("9780201633610").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        Book savedAfter = bookRepository.save(newBook("9780596007126"));
+
+        // Then
+        assertThat(created.getId())
+                .isNotNull()
+                .isNotIn(saved.getId(), savedAfter.getId());
+        assertThat(bookRepository.findById(created.getId()))
+                .hasValueSatisfying(book -> assertThat(book.getTitle()).isEqualTo("Clean Code"));
+
+        client.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("Other").author("Other").isbn("9780201633610").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("ISBN already exists!");
+
+        client.get()
+                .uri(BOOK_API.concat("?title=clean&page=0&size=10"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(1)
+                .jsonPath("[0].isbn").isEqualTo("9780201633610");
+
+        client.put()
+                .uri(BOOK_API.concat("/" + created.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("Refactoring").author("Martin Fowler").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("title").isEqualTo("Refactoring")
+                .jsonPath("isbn").isEqualTo("9780201633610");
+
+        client.get()
+                .uri(BOOK_API.concat("?sort=isbn,desc&page=0&size=2"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(2)
+                .jsonPath("[0].isbn").isEqualTo("9780596007126")
+                .jsonPath("[1].isbn").isEqualTo("9780201633610");
+    }
+
+    @Test
+    @DisplayName("Must allow a single open loan per book, until it is returned.")
+    public void loansTest() {
+        // Given
+        Book book = bookRepository.save(newBook("9780134685991"));
+
+        LoanDTO dto = LoanDTO.builder()
+                .isbn(book.getIsbn())
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        Long loanId = client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book is currently loaned!");
+
+        client.patch()
+                .uri(LOAN_API.concat("/" + loanId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.get()
+                .uri(LOAN_API.concat("?customer=Fulano&page=0&size=10"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(2)
+                .jsonPath("[0].id").isEqualTo(loanId)
+                .jsonPath("[0].isbn").isEqualTo("9780134685991");
+
+        client.get()
+                .uri(BOOK_API.concat("/" + book.getId() + "/loans?page=0&size=1"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(1)
+                .jsonPath("[0].book.id").isEqualTo(book.getId());
+
+        client.patch()
+                .uri(LOAN_API.concat("/" + loanId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ReturnedLoanDTO.builder().returned(false).build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book is currently loaned!");
+    }
+
+    @Test
+    @DisplayName("Must loan a book stored with an invalid ISBN, from before ISBNs were validated.")
+    public void legacyIsbnLoanTest() {
+        // Given
+        Book book = bookRepository.save(newBook("LEGACY-0001"));
+        jdbcTemplate.update("update book set legacy_isbn = true where id = ?", book.getId());
+        legacyIsbns.load();
+
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("LEGACY-0001")
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        // Then
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+}
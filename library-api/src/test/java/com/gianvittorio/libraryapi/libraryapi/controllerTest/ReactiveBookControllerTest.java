@@ -0,0 +1,348 @@
+package com.gianvittorio.libraryapi.libraryapi.controllerTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.resource.ReactiveBookController;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveBookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+/**
+ * Runs the scenarios of {@link BookControllerTest} against the reactive stack.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@WebFluxTest(controllers = ReactiveBookController.class)
+@Import(SimpleMeterRegistry.class)
+public class ReactiveBookControllerTest {
+    static String BOOK_API = "/api/v1/books";
+
+    @Autowired
+    WebTestClient client;
+
+    @MockBean
+    ReactiveBookService service;
+
+    @Test
+    @DisplayName("Must successfully create a book.")
+    public void createBookTest() {
+        // Given
+        BookDTO dto = BookDTO.builder()
+                .author("Artur")
+                .title("As Aventuras")
+                .isbn("9780132350884")
+                .build();
+
+        Book savedBook = createNewBook();
+        savedBook.setId(1l);
+
+        BDDMockito.given(service.save(any(Book.class)))
+                .willReturn(Mono.just(savedBook));
+
+        // When
+        // Then
+        client.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isEqualTo(1)
+                .jsonPath("title").isEqualTo(dto.getTitle())
+                .jsonPath("author").isEqualTo(dto.getAuthor())
+                .jsonPath("isbn").isEqualTo(dto.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Must throw error on trying to create book without sufficient infos.")
+    public void createInvalidBookTest() {
+        client.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Must throw whenever trying to create book with duplicated ISBN.")
+    public void createBookWithDuplicatedIsbn() {
+        // Given
+        final String ERROR_MESSAGE = "ISBN already exists!";
+
+        BDDMockito.given(service.save(any(Book.class)))
+                .willReturn(Mono.error(new BusinessException(ERROR_MESSAGE)));
+
+        // When
+        // Then
+        client.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(1)
+                .jsonPath("errors[0]").isEqualTo(ERROR_MESSAGE);
+    }
+
+    @Test
+    @DisplayName("Must fetch details on book.")
+    public void getBookDetailsTest() {
+        // Given
+        Book book = createNewBook();
+        book.setId(1l);
+
+        BDDMockito.given(service.getById(1l))
+                .willReturn(Mono.just(book));
+
+        // When
+        // Then
+        client.get()
+                .uri(BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(1)
+                .jsonPath("title").isEqualTo(book.getTitle())
+                .jsonPath("author").isEqualTo(book.getAuthor())
+                .jsonPath("isbn").isEqualTo(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Must throw ResourceNotFound exception when book is not found.")
+    public void bookNotFoundTest() {
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Mono.empty());
+
+        client.get()
+                .uri(BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Must delete book referred by id.")
+    public void deleteBookTest() {
+        // Given
+        Book book = Book.builder()
+                .id(1l)
+                .build();
+
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Mono.just(book));
+        BDDMockito.given(service.delete(book))
+                .willReturn(Mono.empty());
+
+        // When
+        // Then
+        client.delete()
+                .uri(BOOK_API.concat("/1"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(service)
+                .delete(book);
+    }
+
+    @Test
+    @DisplayName("Must return resource not found code whenever book is not found.")
+    public void deleteNonExistingBookTest() {
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Mono.empty());
+
+        client.delete()
+                .uri(BOOK_API.concat("/1"))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        Mockito.verify(service, Mockito.never())
+                .delete(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Must update book when id is found.")
+    public void updateBookTest() {
+        // Given
+        Book updatingBook = Book.builder()
+                .id(1l)
+                .title("Any Title")
+                .author("Any Author")
+                .isbn("321")
+                .build();
+
+        BDDMockito.given(service.getById(1l))
+                .willReturn(Mono.just(updatingBook));
+        BDDMockito.given(service.update(any(Book.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When
+        // Then
+        client.put()
+                .uri(BOOK_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(1)
+                .jsonPath("title").isEqualTo(createNewBook().getTitle())
+                .jsonPath("author").isEqualTo(createNewBook().getAuthor())
+                .jsonPath("isbn").isEqualTo("321");
+    }
+
+    @Test
+    @DisplayName("Must return 404 whenever trying to update non existing book.")
+    public void updateNonExistingBookTest() {
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Mono.empty());
+
+        client.put()
+                .uri(BOOK_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Must filter books.")
+    public void findBooksTest() {
+        // Given
+        Book book = createNewBook();
+        book.setId(1l);
+
+        BDDMockito.given(service.find(any(Book.class), any(Pageable.class)))
+                .willReturn(Flux.just(book));
+
+        // When
+        // Then
+        client.get()
+                .uri(BOOK_API.concat("?title={title}&author={author}&page=0&size=100"), book.getTitle(), book.getAuthor())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(1)
+                .jsonPath("[0].id").isEqualTo(1);
+
+        Mockito.verify(service)
+                .find(
+                        Mockito.argThat(filter -> book.getTitle().equals(filter.getTitle())
+                                && book.getAuthor().equals(filter.getAuthor())),
+                        Mockito.argThat(pageable -> pageable.getPageNumber() == 0 && pageable.getPageSize() == 100)
+                );
+    }
+
+    @Test
+    @DisplayName("Must stream books as newline delimited JSON.")
+    public void streamBooksTest() {
+        // Given
+        Book first = Book.builder().id(1l).title("A").build();
+        Book second = Book.builder().id(2l).title("B").build();
+
+        BDDMockito.given(service.find(any(Book.class), any(Pageable.class)))
+                .willReturn(Flux.just(first, second));
+
+        // When
+        Flux<BookDTO> books = client.get()
+                .uri(BOOK_API.concat("?page=0&size=10"))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BookDTO.class)
+                .getResponseBody();
+
+        // Then
+        assertThat(books.collectList().block())
+                .extracting(BookDTO::getId)
+                .containsExactly(1l, 2l);
+    }
+
+    @Test
+    @DisplayName("Must list loans of book referred to by id.")
+    public void loansByBookTest() {
+        // Given
+        Book book = createNewBook();
+        book.setId(1l);
+
+        Loan loan = Loan.builder()
+                .id(2l)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .build();
+
+        BDDMockito.given(service.getById(1l))
+                .willReturn(Mono.just(book));
+        BDDMockito.given(service.getLoansByBook(Mockito.eq(book), any(Pageable.class)))
+                .willReturn(Flux.just(loan));
+
+        // When
+        // Then
+        client.get()
+                .uri(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(1)
+                .jsonPath("[0].id").isEqualTo(2)
+                .jsonPath("[0].customer").isEqualTo("Fulano")
+                .jsonPath("[0].email").isEqualTo("fulano@email.com")
+                .jsonPath("[0].isbn").isEqualTo(book.getIsbn())
+                .jsonPath("[0].book.id").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Must return 404 on listing loans of non existing book.")
+    public void loansByNonExistingBookTest() {
+        BDDMockito.given(service.getById(anyLong()))
+                .willReturn(Mono.empty());
+
+        client.get()
+                .uri(BOOK_API.concat("/1/loans"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private static Book createNewBook() {
+        return Book.builder()
+                .author("Artur")
+                .title("As Aventuras")
+                .isbn("9780132350884")
+                .build();
+    }
+}
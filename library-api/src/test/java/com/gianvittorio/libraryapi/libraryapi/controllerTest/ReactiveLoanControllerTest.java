@@ -0,0 +1,238 @@
+package com.gianvittorio.libraryapi.libraryapi.controllerTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.ReturnedLoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.resource.ReactiveLoanController;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveBookService;
+import com.gianvittorio.libraryapi.libraryapi.service.ReactiveLoanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static com.gianvittorio.libraryapi.libraryapi.serviceTest.LoanServiceTest.newLoan;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the scenarios of {@link LoanControllerTest} against the reactive stack.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@WebFluxTest(controllers = ReactiveLoanController.class)
+@Import(SimpleMeterRegistry.class)
+public class ReactiveLoanControllerTest {
+    private static String LOAN_API = "/api/v1/loan";
+
+    @Autowired
+    WebTestClient client;
+
+    @MockBean
+    private ReactiveBookService bookService;
+
+    @MockBean
+    private ReactiveLoanService loanService;
+
+    @Test
+    @DisplayName("Must create loan.")
+    public void createLoanTest() {
+        // Given
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("123")
+                .customer("Fulano")
+                .email("customer@email.com")
+                .build();
+
+        Book book = Book.builder()
+                .isbn("123")
+                .id(1l)
+                .build();
+        given(bookService.getBookByIsbn(dto.getIsbn()))
+                .willReturn(Mono.just(book));
+
+        Loan loan = Loan.builder()
+                .id(1l)
+                .customer("Fulano")
+                .book(book)
+                .loanDate(LocalDate.now())
+                .build();
+
+        given(loanService.save(any(Loan.class)))
+                .willReturn(Mono.just(loan));
+
+        // When
+        // Then
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class).isEqualTo("1");
+    }
+
+    @Test
+    @DisplayName("Must throw on trying to loan a non existing book.")
+    public void invalidIsbnLoanTest() {
+        // Given
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("123")
+                .customer("Fulano")
+                .build();
+
+        given(bookService.getBookByIsbn(dto.getIsbn()))
+                .willReturn(Mono.empty());
+
+        // When
+        // Then
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(1)
+                .jsonPath("errors[0]").isEqualTo("Book not found for provided Isbn!");
+    }
+
+    @Test
+    @DisplayName("Must throw on trying to loan an unavailable book.")
+    public void loanedBookErrorOnCreateLoanTest() {
+        // Given
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("123")
+                .customer("Fulano")
+                .build();
+
+        Book book = Book.builder()
+                .isbn("123")
+                .id(1l)
+                .build();
+        given(bookService.getBookByIsbn(dto.getIsbn()))
+                .willReturn(Mono.just(book));
+
+        given(loanService.save(any(Loan.class)))
+                .willReturn(Mono.error(new BusinessException("Book is currently loaned!")));
+
+        // When
+        // Then
+        client.post()
+                .uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(1)
+                .jsonPath("errors[0]").isEqualTo("Book is currently loaned!");
+    }
+
+    @Test
+    @DisplayName("Must return a book.")
+    public void returnBookTest() {
+        // Given
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder()
+                .returned(true)
+                .build();
+
+        Loan loan = Loan.builder().id(1l).build();
+        given(loanService.getById(anyLong()))
+                .willReturn(Mono.just(loan));
+        given(loanService.update(any(Loan.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When
+        // Then
+        client.patch()
+                .uri(LOAN_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(loanService)
+                .update(Mockito.argThat(updated -> Boolean.TRUE.equals(updated.getReturned())));
+    }
+
+    @Test
+    @DisplayName("Must return 404 on trying to hand over non existing book")
+    public void returnNonExistingBookTest() {
+        // Given
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder()
+                .returned(true)
+                .build();
+
+        given(loanService.getById(anyLong()))
+                .willReturn(Mono.empty());
+
+        // When
+        // Then
+        client.patch()
+                .uri(LOAN_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book referred to by 1 does not exist!");
+    }
+
+    @Test
+    @DisplayName("Must filter loans.")
+    public void findLoansTest() {
+        // Given
+        Loan loan = newLoan();
+        loan.setId(1l);
+        Book book = Book.builder().id(1l).isbn("321").build();
+        loan.setBook(book);
+
+        BDDMockito.given(loanService.find(any(LoanFilterDTO.class), any(Pageable.class)))
+                .willReturn(Flux.just(loan));
+
+        // When
+        // Then
+        client.get()
+                .uri(LOAN_API.concat("?isbn={isbn}&customer={customer}&page=0&size=10"), book.getIsbn(), loan.getCustomer())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("length()").isEqualTo(1)
+                .jsonPath("[0].id").isEqualTo(1)
+                .jsonPath("[0].isbn").isEqualTo("321");
+
+        verify(loanService)
+                .find(
+                        Mockito.argThat(filter -> "321".equals(filter.getIsbn())
+                                && loan.getCustomer().equals(filter.getCustomer())),
+                        Mockito.argThat(pageable -> pageable.getPageSize() == 10)
+                );
+    }
+}
@@ -0,0 +1,55 @@
+package com.gianvittorio.libraryapi.libraryapi.controllerTest;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "virtual-threads"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIf("virtualThreadsAvailable")
+public class VirtualThreadsTest {
+    private static String BOOK_API = "/api/v1/books";
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+
+    @Test
+    @DisplayName("Must serve requests on virtual threads with the virtual-threads profile.")
+    public void virtualThreadExecutorTest() {
+        // Given
+        Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(BOOK_API.concat("?page=0&size=10"), String.class);
+
+        // Then
+        Executor executor = connector.getProtocolHandler().getExecutor();
+        assertThat(executor.getClass().getName())
+                .isEqualTo("java.util.concurrent.ThreadPerTaskExecutor");
+        assertThat(response.getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+}
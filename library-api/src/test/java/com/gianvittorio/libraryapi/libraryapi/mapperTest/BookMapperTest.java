@@ -0,0 +1,72 @@
+package com.gianvittorio.libraryapi.libraryapi.mapperTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.BookDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookMapperTest {
+    BookMapper mapper = Mappers.getMapper(BookMapper.class);
+
+    @Test
+    @DisplayName("Must map book into its DTO.")
+    public void toDtoTest() {
+        // Given
+        Book book = Book.builder()
+                .id(1l)
+                .title("As Aventuras")
+                .author("Artur")
+                .isbn("001")
+                .build();
+
+        // When
+        BookDTO dto = mapper.toDto(book);
+
+        // Then
+        assertThat(dto.getId())
+                .isEqualTo(book.getId());
+        assertThat(dto.getTitle())
+                .isEqualTo(book.getTitle());
+        assertThat(dto.getAuthor())
+                .isEqualTo(book.getAuthor());
+        assertThat(dto.getIsbn())
+                .isEqualTo(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Must map DTO into book, leaving missing properties null.")
+    public void toEntityTest() {
+        // Given
+        BookDTO dto = BookDTO.builder()
+                .title("As Aventuras")
+                .build();
+
+        // When
+        Book book = mapper.toEntity(dto);
+
+        // Then
+        assertThat(book.getTitle())
+                .isEqualTo(dto.getTitle());
+        assertThat(book.getId())
+                .isNull();
+        assertThat(book.getAuthor())
+                .isNull();
+        assertThat(book.getIsbn())
+                .isNull();
+        assertThat(book.getLoans())
+                .isNull();
+    }
+
+    @Test
+    @DisplayName("Must map null into null.")
+    public void nullTest() {
+        assertThat(mapper.toDto(null))
+                .isNull();
+        assertThat(mapper.toEntity(null))
+                .isNull();
+    }
+}
@@ -0,0 +1,98 @@
+package com.gianvittorio.libraryapi.libraryapi.mapperTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanMapperTest {
+    LoanMapper mapper = Mappers.getMapper(LoanMapper.class);
+
+    @Test
+    @DisplayName("Must map loan and its book into DTO.")
+    public void toDtoTest() {
+        // Given
+        Book book = Book.builder()
+                .id(1l)
+                .title("As Aventuras")
+                .author("Artur")
+                .isbn("321")
+                .build();
+
+        Loan loan = Loan.builder()
+                .id(2l)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.now())
+                .book(book)
+                .build();
+
+        // When
+        LoanDTO dto = mapper.toDto(loan);
+
+        // Then
+        assertThat(dto.getId())
+                .isEqualTo(loan.getId());
+        assertThat(dto.getCustomer())
+                .isEqualTo(loan.getCustomer());
+        assertThat(dto.getEmail())
+                .isEqualTo(loan.getCustomerEmail());
+        assertThat(dto.getIsbn())
+                .isEqualTo(book.getIsbn());
+        assertThat(dto.getBook().getId())
+                .isEqualTo(book.getId());
+        assertThat(dto.getBook().getTitle())
+                .isEqualTo(book.getTitle());
+    }
+
+    @Test
+    @DisplayName("Must map loan without book into DTO.")
+    public void toDtoWithoutBookTest() {
+        // Given
+        Loan loan = Loan.builder()
+                .id(2l)
+                .customer("Fulano")
+                .build();
+
+        // When
+        LoanDTO dto = mapper.toDto(loan);
+
+        // Then
+        assertThat(dto.getIsbn())
+                .isNull();
+        assertThat(dto.getBook())
+                .isNull();
+    }
+
+    @Test
+    @DisplayName("Must map DTO into a new loan.")
+    public void toEntityTest() {
+        // Given
+        LoanDTO dto = LoanDTO.builder()
+                .id(2l)
+                .isbn("321")
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        Loan loan = mapper.toEntity(dto);
+
+        // Then
+        assertThat(loan.getId())
+                .isNull();
+        assertThat(loan.getCustomer())
+                .isEqualTo(dto.getCustomer());
+        assertThat(loan.getCustomerEmail())
+                .isEqualTo(dto.getEmail());
+        assertThat(loan.getBook())
+                .isNull();
+    }
+}
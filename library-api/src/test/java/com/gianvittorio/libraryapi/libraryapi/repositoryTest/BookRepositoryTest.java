@@ -8,12 +8,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ActiveProfiles("test")
 @ExtendWith(SpringExtension.class)
@@ -42,6 +48,13 @@ public class BookRepositoryTest {
                 .isTrue();
     }
 
+    private Object isbnOf(Book book) {
+        return entityManager.getEntityManager()
+                .createNativeQuery("select isbn from book where id = :id")
+                .setParameter("id", book.getId())
+                .getSingleResult();
+    }
+
     public static Book newBook(String isbn) {
         return Book.builder()
                 .title("Aventuras")
@@ -63,6 +76,27 @@ public class BookRepositoryTest {
         assertThat(exists).isFalse();
     }
 
+    @Test
+    @DisplayName("Must store valid ISBNs as their ISBN-13 digits, and other values as they are.")
+    public void storeNormalizedIsbnTest() {
+        // Scenario
+        Book isbn10 = entityManager.persist(newBook("0-13-235088-2"));
+        Book invalid = entityManager.persist(newBook("123"));
+        entityManager.flush();
+
+        // Execution
+        Object storedIsbn10 = isbnOf(isbn10);
+        Object storedInvalid = isbnOf(invalid);
+
+        // Verification
+        assertThat(storedIsbn10)
+                .isEqualTo("9780132350884");
+        assertThat(storedInvalid)
+                .isEqualTo("123");
+        assertThat(repository.existsByIsbn("9780132350884"))
+                .isTrue();
+    }
+
     @Test
     @DisplayName("Must find book by id.")
     public void findByIdTest() {
@@ -112,4 +146,85 @@ public class BookRepositoryTest {
         assertThat(repository.existsById(id))
                 .isTrue();
     }
+
+    @Test
+    @DisplayName("Must return which of the given ISBNs already exist.")
+    public void findIsbnsInTest() {
+        // Given
+        entityManager.persist(newBook("111"));
+        entityManager.persist(newBook("222"));
+
+        // When
+        Set<String> isbns = repository.findIsbnsIn(List.of("111", "222", "333"));
+
+        // Then
+        assertThat(isbns)
+                .containsExactlyInAnyOrder("111", "222");
+    }
+
+    @Test
+    @DisplayName("Must find the books of the given ISBNs.")
+    public void findByIsbnInTest() {
+        // Given
+        Book first = entityManager.persist(newBook("111"));
+        Book second = entityManager.persist(newBook("222"));
+
+        // When
+        List<Book> books = repository.findByIsbnIn(List.of("111", "222", "333"));
+
+        // Then
+        assertThat(books)
+                .containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    @DisplayName("Must filter books after the given id, ordered by id.")
+    public void findByFilterAfterTest() {
+        // Given
+        Book first = entityManager.persist(newBook("111"));
+        Book second = entityManager.persist(newBook("222"));
+        Book third = entityManager.persist(newBook("333"));
+        Book other = newBook("444");
+        other.setTitle("Other");
+        entityManager.persist(other);
+
+        // When
+        Slice<Book> firstSlice = repository.findByFilterAfter("aventura", null, null, 0l, PageRequest.of(0, 2));
+        Slice<Book> lastSlice = repository.findByFilterAfter("aventura", null, null, second.getId(), PageRequest.of(0, 2));
+
+        // Then
+        assertThat(firstSlice.getContent())
+                .containsExactly(first, second);
+        assertThat(firstSlice.hasNext())
+                .isTrue();
+        assertThat(lastSlice.getContent())
+                .containsExactly(third);
+        assertThat(lastSlice.hasNext())
+                .isFalse();
+    }
+
+    @Test
+    @DisplayName("Must bump the version on update and reject updates of a stale version.")
+    public void staleVersionUpdateTest() {
+        // Scenario
+        Book book = entityManager.persistFlushFind(newBook("123"));
+        Long version = book.getVersion();
+
+        book.setTitle("Outras Aventuras");
+        entityManager.flush();
+        entityManager.clear();
+
+        Book stale = newBook("123");
+        stale.setId(book.getId());
+        stale.setVersion(version);
+
+        // Execution
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(stale));
+
+        // Verification
+        assertThat(entityManager.find(Book.class, book.getId()).getVersion())
+                .isEqualTo(version + 1);
+        assertThat(exception)
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
 }
@@ -0,0 +1,139 @@
+package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
+
+import db.migration.V6__normalize_isbns;
+import db.migration.V7__flag_legacy_isbns;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the ISBN migrations, V6 and V7, against a book table with the unique isbn index of V2.
+ */
+public class IsbnMigrationTest {
+    Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:isbn-migration");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table book (id bigint primary key, isbn varchar(255))");
+            statement.execute("create unique index uk_book_isbn on book (isbn)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Must rewrite valid ISBNs as their ISBN-13 digits, and leave the others as they are.")
+    public void normalizeIsbnsTest() throws Exception {
+        // Given
+        insert(1, "0-13-235088-2");
+        insert(2, "978-0-8044-2957-3");
+        insert(3, "9780596009205");
+        insert(4, "123");
+
+        // When
+        migrate();
+
+        // Then
+        assertThat(isbns())
+                .containsEntry(1L, "9780132350884")
+                .containsEntry(2L, "9780804429573")
+                .containsEntry(3L, "9780596009205")
+                .containsEntry(4L, "123");
+    }
+
+    @Test
+    @DisplayName("Must leave books as they are whenever their ISBNs would end up the same.")
+    public void collidingIsbnsTest() throws Exception {
+        // Given
+        insert(1, "0-13-235088-2");
+        insert(2, "9780132350884");
+        insert(3, "0-8044-2957-X");
+        insert(4, "978-0-8044-2957-3");
+        insert(5, "0-596-00920-8");
+
+        // When
+        migrate();
+
+        // Then
+        assertThat(isbns())
+                .containsEntry(1L, "0-13-235088-2")
+                .containsEntry(2L, "9780132350884")
+                .containsEntry(3L, "0-8044-2957-X")
+                .containsEntry(4L, "978-0-8044-2957-3")
+                .containsEntry(5L, "9780596009205");
+    }
+
+    @Test
+    @DisplayName("Must flag the books stored with an invalid ISBN as legacy.")
+    public void flagLegacyIsbnsTest() throws Exception {
+        // Given
+        insert(1, "0-13-235088-2");
+        insert(2, "123");
+        insert(3, "978-0-13-235088-5");
+
+        // When
+        migrate();
+        new V7__flag_legacy_isbns().migrate(context());
+
+        // Then
+        try (Statement statement = connection.createStatement();
+             ResultSet books = statement.executeQuery("select id from book where legacy_isbn = true order by id")) {
+            assertThat(books.next()).isTrue();
+            assertThat(books.getLong("id")).isEqualTo(2);
+            assertThat(books.next()).isTrue();
+            assertThat(books.getLong("id")).isEqualTo(3);
+            assertThat(books.next()).isFalse();
+        }
+    }
+
+    private void migrate() throws Exception {
+        new V6__normalize_isbns().migrate(context());
+    }
+
+    private Context context() {
+        Context context = mock(Context.class);
+        when(context.getConnection())
+                .thenReturn(connection);
+
+        return context;
+    }
+
+    private void insert(long id, String isbn) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("insert into book (id, isbn) values (" + id + ", '" + isbn + "')");
+        }
+    }
+
+    private Map<Long, String> isbns() throws SQLException {
+        Map<Long, String> isbns = new HashMap<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet books = statement.executeQuery("select id, isbn from book")) {
+            while (books.next()) {
+                isbns.put(books.getLong("id"), books.getString("isbn"));
+            }
+        }
+
+        return isbns;
+    }
+}
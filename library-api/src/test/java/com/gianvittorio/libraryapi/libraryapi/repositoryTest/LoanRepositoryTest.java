@@ -2,7 +2,12 @@ package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
 
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LateLoanEmail;
 import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.ReturnableLoan;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,18 +17,23 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.PersistenceException;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.gianvittorio.libraryapi.libraryapi.repositoryTest.BookRepositoryTest.newBook;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ActiveProfiles("test")
 @ExtendWith(SpringExtension.class)
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
     @Autowired
     TestEntityManager entityManager;
@@ -56,6 +66,47 @@ public class LoanRepositoryTest {
                 .isTrue();
     }
 
+    @Test
+    @DisplayName("Must reject a second open loan of the same book.")
+    public void secondOpenLoanOfSameBookTest() {
+        // Given
+        Book book = entityManager.persist(newBook("321"));
+        entityManager.persist(Loan.builder().customer("Fulano").book(book).build());
+        entityManager.flush();
+
+        // When
+        Throwable exception = catchThrowable(() -> {
+            entityManager.persist(Loan.builder().customer("Beltrano").book(book).build());
+            entityManager.flush();
+        });
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(PersistenceException.class)
+                .hasCauseInstanceOf(ConstraintViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Must allow a new open loan once the previous one has been returned.")
+    public void openLoanAfterReturnTest() {
+        // Given
+        Book book = entityManager.persist(newBook("321"));
+        Loan returnedLoan = entityManager.persist(Loan.builder().customer("Fulano").book(book).build());
+        entityManager.flush();
+
+        returnedLoan.setReturned(true);
+        entityManager.flush();
+
+        // When
+        Loan loan = entityManager.persistAndFlush(Loan.builder().customer("Beltrano").book(book).build());
+
+        // Then
+        assertThat(returnedLoan.getActiveBookId())
+                .isNull();
+        assertThat(loan.getActiveBookId())
+                .isEqualTo(book.getId());
+    }
+
     @Test
     @DisplayName("Must search for loan by isbn or customer.")
     public void findByBookIsbnOrCustomerTest() {
@@ -98,8 +149,101 @@ public class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("Must return loans older than given date, which have not been returned.")
-    public void findByLoanDateLessThanAndNotReturnedTest() {
+    @DisplayName("Must search for loans by isbn or customer after the given id.")
+    public void findByBookIsbnOrCustomerAfterTest() {
+        // Given
+        Book book = entityManager.persist(newBook("321"));
+        Book otherBook = entityManager.persist(newBook("123"));
+
+        Loan first = entityManager.persist(Loan.builder().customer("Fulano").book(book).build());
+        entityManager.persist(Loan.builder().customer("Beltrano").book(otherBook).returned(true).build());
+        Loan last = entityManager.persist(Loan.builder().customer("Fulano").book(otherBook).build());
+
+        // When
+        Slice<Loan> firstSlice = repository.findByBookIsbnOrCustomerAfter("321", "Fulano", 0l, PageRequest.of(0, 1));
+        Slice<Loan> lastSlice = repository.findByBookIsbnOrCustomerAfter("321", "Fulano", first.getId(), PageRequest.of(0, 1));
+
+        // Then
+        assertThat(firstSlice.getContent())
+                .containsExactly(first);
+        assertThat(firstSlice.hasNext())
+                .isTrue();
+        assertThat(lastSlice.getContent())
+                .containsExactly(last);
+        assertThat(lastSlice.hasNext())
+                .isFalse();
+    }
+
+    @Test
+    @DisplayName("Must page loans of a book, latest first, without reloading the book.")
+    public void findByBookTest() {
+        // Given
+        Book book = entityManager.persist(newBook("321"));
+        LocalDate today = LocalDate.now();
+
+        for (int daysAgo : List.of(3, 1, 2)) {
+            entityManager.persist(
+                    Loan.builder()
+                            .customer("Fulano")
+                            .book(book)
+                            .loanDate(today.minusDays(daysAgo))
+                            .returned(daysAgo > 1)
+                            .build()
+            );
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Book foundBook = entityManager.find(Book.class, book.getId());
+        Statistics statistics = statistics();
+
+        // When
+        Page<Loan> loans = repository.findByBook(foundBook, PageRequest.of(0, 2));
+
+        // Then
+        assertThat(loans.getTotalElements())
+                .isEqualTo(3);
+        assertThat(loans.getContent())
+                .extracting(Loan::getLoanDate)
+                .containsExactly(today.minusDays(1), today.minusDays(2));
+        assertThat(loans.getContent())
+                .allSatisfy(loan -> assertThat(loan.getBook()).isSameAs(foundBook));
+        assertThat(statistics.getPrepareStatementCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Must load a page of loans along with their books in a single statement.")
+    public void findByBookIsbnOrCustomerFetchesBooksTest() {
+        // Given
+        String customer = "Fulano";
+        for (String isbn : List.of("111", "222", "333")) {
+            Book book = entityManager.persist(newBook(isbn));
+            entityManager.persist(Loan.builder().customer(customer).book(book).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+
+        // When
+        Page<Loan> loans = repository.findByBookIsbnOrCustomer("999", customer, PageRequest.of(0, 10));
+        Slice<Loan> slice = repository.findByBookIsbnOrCustomerAfter("999", customer, 0l, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(loans.getContent())
+                .hasSize(3)
+                .allSatisfy(loan -> assertThat(loan.getBook().getTitle()).isNotNull());
+        assertThat(slice.getContent())
+                .hasSize(3)
+                .allSatisfy(loan -> assertThat(loan.getBook().getTitle()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Must return loans due before the given date, which have not been returned.")
+    public void findByDueDateBeforeAndNotReturnedTest() {
         // Given
         String customer = "fulano";
         String customerEmail = customer.concat("@domain.com");
@@ -110,12 +254,14 @@ public class LoanRepositoryTest {
                 .customer(customer)
                 .customerEmail(customerEmail)
                 .loanDate(loanDate)
+                .dueDate(loanDate.plusDays(3))
                 .build();
 
         entityManager.persist(loan);
+        entityManager.persist(lateLoan("a@domain.com", today.minusDays(3), null));
 
         // When
-        List<Loan> lateLoans = repository.findByLoanDateLessThanAndNotReturned(today);
+        List<Loan> lateLoans = repository.findByDueDateBeforeAndNotReturned(today);
 
         // Then
         assertThat(lateLoans)
@@ -124,4 +270,125 @@ public class LoanRepositoryTest {
                 .hasSize(1)
                 .contains(loan);
     }
+
+    @Test
+    @DisplayName("Must page overdue loans along with their books, longest overdue first.")
+    public void findOverdueTest() {
+        // Given
+        LocalDate today = LocalDate.now();
+
+        Book first = entityManager.persist(newBook("1"));
+        Book second = entityManager.persist(newBook("2"));
+        Book third = entityManager.persist(newBook("3"));
+
+        Loan overdue = lateLoan("a@domain.com", today.minusDays(5), null);
+        overdue.setBook(first);
+        Loan longestOverdue = lateLoan("b@domain.com", today.minusDays(9), false);
+        longestOverdue.setBook(second);
+        Loan returned = lateLoan("c@domain.com", today.minusDays(9), true);
+        returned.setBook(third);
+
+        entityManager.persist(overdue);
+        entityManager.persist(longestOverdue);
+        entityManager.persist(returned);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+
+        // When
+        Page<Loan> firstPage = repository.findOverdue(today, PageRequest.of(0, 1));
+
+        // Then
+        assertThat(firstPage.getTotalElements())
+                .isEqualTo(2);
+        assertThat(firstPage.getContent())
+                .extracting(Loan::getId, loan -> loan.getBook().getIsbn())
+                .containsExactly(tuple(longestOverdue.getId(), "2"));
+        assertThat(statistics.getPrepareStatementCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Must page e-mails of late loans, which have not been returned, after the given id.")
+    public void findLateLoanEmailsAfterTest() {
+        // Given
+        LocalDate today = LocalDate.now();
+
+        Loan first = entityManager.persist(lateLoan("a@domain.com", today.minusDays(5), null));
+        entityManager.persist(lateLoan("b@domain.com", today.minusDays(5), true));
+        entityManager.persist(lateLoan("c@domain.com", today, false));
+        Loan last = entityManager.persist(lateLoan("d@domain.com", today.minusDays(6), false));
+
+        // When
+        List<LateLoanEmail> firstChunk = repository.findLateLoanEmailsAfter(today, 0l, PageRequest.of(0, 1));
+        List<LateLoanEmail> lastChunk = repository.findLateLoanEmailsAfter(today, first.getId(), PageRequest.of(0, 1));
+
+        // Then
+        assertThat(firstChunk)
+                .extracting(LateLoanEmail::getId, LateLoanEmail::getCustomerEmail)
+                .containsExactly(tuple(first.getId(), "a@domain.com"));
+        assertThat(lastChunk)
+                .extracting(LateLoanEmail::getId, LateLoanEmail::getCustomerEmail)
+                .containsExactly(tuple(last.getId(), "d@domain.com"));
+    }
+
+    @Test
+    @DisplayName("Must look loans up for a batch return and return the open ones in a single update.")
+    public void markReturnedTest() {
+        // Given
+        Book first = entityManager.persist(newBook("1"));
+        Book second = entityManager.persist(newBook("2"));
+        Book third = entityManager.persist(newBook("3"));
+
+        Loan open = entityManager.persist(Loan.builder().customer("Fulano").loanDate(LocalDate.now()).book(first).build());
+        Loan openByIsbn = entityManager.persist(Loan.builder().customer("Fulano").loanDate(LocalDate.now()).book(second).build());
+        Loan returned = entityManager.persist(Loan.builder().customer("Fulano").loanDate(LocalDate.now()).book(third).returned(true).build());
+
+        // When
+        List<ReturnableLoan> byId = repository.findReturnableByIdIn(Arrays.asList(open.getId(), returned.getId(), -1l));
+        List<ReturnableLoan> byIsbn = repository.findOpenReturnableByBookIsbnIn(Arrays.asList("2", "3"));
+        List<String> loanedIsbns = repository.findLoanedIsbnsIn(Arrays.asList("3", "4"));
+
+        int updated = repository.markReturned(Arrays.asList(open.getId(), openByIsbn.getId(), returned.getId()));
+
+        // Then
+        assertThat(byId)
+                .extracting(ReturnableLoan::getId, ReturnableLoan::getIsbn, ReturnableLoan::getActiveBookId)
+                .containsExactlyInAnyOrder(tuple(open.getId(), "1", first.getId()), tuple(returned.getId(), "3", null));
+        assertThat(byIsbn)
+                .extracting(ReturnableLoan::getId)
+                .containsExactly(openByIsbn.getId());
+        assertThat(loanedIsbns)
+                .containsExactly("3");
+
+        assertThat(updated)
+                .isEqualTo(2);
+        assertThat(entityManager.find(Loan.class, open.getId()))
+                .extracting(Loan::getReturned, Loan::getActiveBookId)
+                .containsExactly(true, null);
+        assertThat(repository.countOpen())
+                .isZero();
+    }
+
+    private static Loan lateLoan(String customerEmail, LocalDate loanDate, Boolean returned) {
+        return Loan.builder()
+                .customer("Fulano")
+                .customerEmail(customerEmail)
+                .loanDate(loanDate)
+                // the last day of the default 4 day period
+                .dueDate(loanDate.plusDays(3))
+                .returned(returned)
+                .build();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        return statistics;
+    }
 }
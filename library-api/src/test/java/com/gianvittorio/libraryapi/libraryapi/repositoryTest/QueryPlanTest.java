@@ -0,0 +1,74 @@
+package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the lookups behind the repositories are served by the indexes of the migrations.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+public class QueryPlanTest {
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Must look books up by isbn through the unique isbn index.")
+    public void isbnLookupPlanTest() {
+        String plan = explain("select b.id from book b where b.isbn = '123'");
+
+        assertThat(plan)
+                .containsIgnoringCase("uk_book_isbn")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Must filter loans by customer through the customer index.")
+    public void customerLookupPlanTest() {
+        String plan = explain("select l.id from loan l where l.customer = 'Fulano'");
+
+        assertThat(plan)
+                .containsIgnoringCase("idx_loan_customer")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Must find loans of a book through the book index.")
+    public void bookLookupPlanTest() {
+        String plan = explain("select l.id from loan l where l.id_book = 1 order by l.loan_date desc");
+
+        assertThat(plan)
+                .contains("ID_BOOK = 1")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Must scan late loans through the due date index.")
+    public void lateLoansPlanTest() {
+        String plan = explain(
+                "select l.id from loan l where l.due_date < date '2020-01-01' and " +
+                        "(l.returned is null or l.returned = false)"
+        );
+
+        assertThat(plan)
+                .containsIgnoringCase("idx_loan_due_date_returned")
+                .doesNotContain("tableScan");
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(
+                entityManager.getEntityManager()
+                        .createNativeQuery("explain " + sql)
+                        .getSingleResult()
+        );
+    }
+}
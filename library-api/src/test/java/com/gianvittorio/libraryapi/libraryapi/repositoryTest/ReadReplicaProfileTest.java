@@ -0,0 +1,60 @@
+package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The read-replica profile as shipped, without a replica of its own.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "read-replica"})
+@SpringBootTest(properties = "application.outbox.relay.interval=PT1H")
+public class ReadReplicaProfileTest {
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @MockBean
+    EmailService emailService;
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must serve read-only transactions from the migrated primary database by default.")
+    public void readOnlyTransactionTest() {
+        // Given
+        // no request, so the read is not sent to the primary for reading the client's own write
+        RequestContextHolder.resetRequestAttributes();
+
+        Book saved = bookService.save(BookRepositoryTest.newBook("9780132350884"));
+
+        // When
+        Page<Book> books = bookService.find(new Book(), PageRequest.of(0, 10));
+
+        // Then
+        assertThat(books.getContent())
+                .extracting(Book::getId)
+                .containsExactly(saved.getId());
+    }
+}
@@ -0,0 +1,183 @@
+package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
+
+import com.gianvittorio.libraryapi.libraryapi.config.ReplicaRoutingDataSource;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two unrelated H2 databases stand in for the primary and its replica, so which one served a read
+ * shows in its result.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "read-replica"})
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "application.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "application.datasource.replica.max-staleness=1s",
+        "application.outbox.relay.interval=PT1H",
+        // the books are inserted with plain JDBC, unseen by the ISBN lookup
+        "application.books.isbn-lookup.bloom-filter.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingTest {
+    private static String LOAN_API = "/api/v1/loan";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replica;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setUp() {
+        Flyway.configure()
+                .dataSource(replica)
+                .load()
+                .migrate();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.update("delete from outbox_event");
+            jdbcTemplate.update("delete from loan");
+            jdbcTemplate.update("delete from book");
+        }
+    }
+
+    @Test
+    @DisplayName("Must read within read-only transactions from the replica, and write to the primary.")
+    public void routingTest() {
+        // Given
+        RequestContextHolder.resetRequestAttributes();
+
+        new JdbcTemplate(replica).update(
+                "insert into book (id, title, author, isbn, version) values (1000, 'Replicated', 'Fulano', '001', 0)"
+        );
+
+        // When
+        Book saved = bookService.save(BookRepositoryTest.newBook("002"));
+
+        // Then
+        assertThat(bookService.find(new Book(), PageRequest.of(0, 10)).getContent())
+                .extracting(Book::getIsbn)
+                .containsExactly("001");
+        assertThat(bookRepository.existsById(saved.getId()))
+                .isFalse();
+        assertThat(new JdbcTemplate(primary).queryForObject("select count(*) from book", Long.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Must read from the primary right after a write by the same client, and from the replica afterwards.")
+    public void readYourWritesTest() throws Exception {
+        // Given
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            new JdbcTemplate(dataSource).update(
+                    "insert into book (id, title, author, isbn, version) values (1000, 'Aventuras', 'Fulano', '9780134685991', 0)"
+            );
+        }
+
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("9780134685991")
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isCreated());
+
+        // Then
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=9780134685991&customer=Fulano&page=0&size=10")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(1));
+
+        Thread.sleep(1500);
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=9780134685991&customer=Fulano&page=0&size=10")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(0));
+    }
+
+    @Test
+    @DisplayName("Must keep only the client which wrote on the primary, when clients share an address.")
+    public void readYourWritesPerClientTest() throws Exception {
+        // Given
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            new JdbcTemplate(dataSource).update(
+                    "insert into book (id, title, author, isbn, version) values (1000, 'Aventuras', 'Fulano', '9780134685991', 0)"
+            );
+        }
+
+        LoanDTO dto = LoanDTO.builder()
+                .isbn("9780134685991")
+                .customer("Fulano")
+                .email("fulano@email.com")
+                .build();
+
+        // When
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API)
+                .header(ReplicaRoutingDataSource.CLIENT_HEADER, "writer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isCreated());
+
+        // Then
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=9780134685991&customer=Fulano&page=0&size=10"))
+                .header(ReplicaRoutingDataSource.CLIENT_HEADER, "writer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(1));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?isbn=9780134685991&customer=Fulano&page=0&size=10"))
+                .header(ReplicaRoutingDataSource.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(0));
+    }
+}
@@ -0,0 +1,112 @@
+package com.gianvittorio.libraryapi.libraryapi.repositoryTest;
+
+import com.gianvittorio.libraryapi.libraryapi.config.MetricsConfig;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static com.gianvittorio.libraryapi.libraryapi.repositoryTest.BookRepositoryTest.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@Import({MetricsConfig.class, LoanServiceImpl.class})
+@ImportAutoConfiguration({
+        MetricsAutoConfiguration.class,
+        CompositeMeterRegistryAutoConfiguration.class,
+        SimpleMetricsExportAutoConfiguration.class
+})
+public class RepositoryMetricsTest {
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository repository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    LoanPeriodPolicy loanPeriodPolicy;
+
+    @Test
+    @DisplayName("Must time the @Query methods of repositories, but not derived or CRUD methods.")
+    public void queryTimingTest() {
+        // When
+        repository.findLateLoanEmailsAfter(LocalDate.now(), 0, PageRequest.of(0, 10));
+        repository.findLateLoanEmailsAfter(LocalDate.now(), 0, PageRequest.of(0, 10));
+        repository.findAll();
+
+        // Then
+        Timer timer = meterRegistry.find("library.repository.queries")
+                .tags("repository", "LoanRepository", "method", "findLateLoanEmailsAfter", "state", "success")
+                .timer();
+
+        assertThat(timer)
+                .isNotNull();
+        assertThat(timer.count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.find("library.repository.queries").tag("method", "findAll").timer())
+                .isNull();
+    }
+
+    @Test
+    @DisplayName("Must gauge open and overdue loans.")
+    public void loanGaugesTest() {
+        // Given
+        Book first = entityManager.persist(newBook("001"));
+        Book second = entityManager.persist(newBook("002"));
+        Book third = entityManager.persist(newBook("003"));
+
+        entityManager.persist(newLoan(first, LocalDate.now().minusDays(10), null));
+        entityManager.persist(newLoan(second, LocalDate.now(), false));
+        entityManager.persist(newLoan(third, LocalDate.now().minusDays(10), true));
+        entityManager.flush();
+
+        // When
+        double open = meterRegistry.get("library.loans.open").gauge().value();
+        double overdue = meterRegistry.get("library.loans.overdue").gauge().value();
+
+        // Then
+        assertThat(open)
+                .isEqualTo(2);
+        assertThat(overdue)
+                .isEqualTo(1);
+    }
+
+    private static Loan newLoan(Book book, LocalDate loanDate, Boolean returned) {
+        return Loan.builder()
+                .book(book)
+                .customer("Fulano")
+                .loanDate(loanDate)
+                .dueDate(loanDate.plusDays(3))
+                .returned(returned)
+                .build();
+    }
+}
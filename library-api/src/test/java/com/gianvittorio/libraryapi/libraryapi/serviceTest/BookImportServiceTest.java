@@ -0,0 +1,174 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportErrorDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.BookImportReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookImportService;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.BookImportServiceImpl;
+import lombok.SneakyThrows;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+public class BookImportServiceTest {
+    BookImportService service;
+
+    BookSearchGeneration searchGeneration;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        searchGeneration = new BookSearchGeneration();
+        service = new BookImportServiceImpl(
+                repository,
+                searchGeneration,
+                Mappers.getMapper(BookMapper.class),
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionManager,
+                entityManager,
+                2
+        );
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must import NDJSON books in batches, checking ISBNs once per batch.")
+    public void importNdjsonTest() {
+        // Given
+        String ndjson = "{\"title\":\"A\",\"author\":\"Fulano\",\"isbn\":\"9780132350884\"}\n" +
+                "{\"title\":\"B\",\"author\":\"Fulano\",\"isbn\":\"9780201633610\"}\n" +
+                "\n" +
+                "{\"title\":\"C\",\"author\":\"Fulano\",\"isbn\":\"9780596007126\"}\n";
+
+        when(repository.findIsbnsIn(anyCollection()))
+                .thenReturn(Set.of());
+
+        // When
+        BookImportReportDTO report = service.importBooks(new StringReader(ndjson), BookImportService.Format.NDJSON);
+
+        // Then
+        assertThat(report.getReceived())
+                .isEqualTo(3);
+        assertThat(report.getImported())
+                .isEqualTo(3);
+        assertThat(report.getErrors())
+                .isEmpty();
+
+        verify(repository, times(2))
+                .findIsbnsIn(anyCollection());
+        verify(repository, times(2))
+                .saveAll(anyCollection());
+        verify(repository, never())
+                .existsByIsbn(any());
+
+        // the cached searches are invalidated by each imported batch
+        assertThat(searchGeneration.current())
+                .isEqualTo(2);
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must report invalid, malformed and duplicated rows, importing the others.")
+    public void importCsvReportsErrorsTest() {
+        // Given
+        String csv = "isbn,title,author\n" +
+                "9780132350884,\"Aventuras, As\",Artur\n" +
+                "9780201633610,,Artur\n" +
+                "\"9780596007126,Broken\n" +
+                "9780306406157,Existing,Artur\n" +
+                "9780201485677,Repeated,Artur\n" +
+                "0-201-48567-2,Repeated,Artur\n";
+
+        when(repository.findIsbnsIn(anyCollection()))
+                .thenReturn(Set.of("9780306406157"));
+
+        // When
+        BookImportReportDTO report = service.importBooks(new StringReader(csv), BookImportService.Format.CSV);
+
+        // Then
+        assertThat(report.getReceived())
+                .isEqualTo(6);
+        assertThat(report.getImported())
+                .isEqualTo(2);
+        assertThat(report.getErrors())
+                .extracting(BookImportErrorDTO::getLine, BookImportErrorDTO::getMessage)
+                .containsExactly(
+                        Tuple.tuple(3l, "title must not be blank"),
+                        Tuple.tuple(4l, "Malformed row!"),
+                        Tuple.tuple(5l, "ISBN already exists!"),
+                        Tuple.tuple(7l, "ISBN already exists!")
+                );
+
+        ArgumentCaptor<Collection<Book>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, atLeastOnce())
+                .saveAll(saved.capture());
+        assertThat(saved.getAllValues().stream().flatMap(Collection::stream))
+                .extracting(Book::getTitle)
+                .containsExactly("Aventuras, As", "Repeated");
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must fall back to row by row inserts whenever the database rejects a batch.")
+    public void importFallsBackOnRejectedBatchTest() {
+        // Given
+        String ndjson = "{\"title\":\"A\",\"author\":\"Fulano\",\"isbn\":\"9780132350884\"}\n" +
+                "{\"title\":\"B\",\"author\":\"Fulano\",\"isbn\":\"9780201633610\"}\n";
+
+        when(repository.findIsbnsIn(anyCollection()))
+                .thenReturn(Set.of());
+        when(repository.saveAll(anyCollection()))
+                .thenThrow(new DataIntegrityViolationException("duplicated"));
+        when(repository.save(any(Book.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("duplicated"));
+
+        // When
+        BookImportReportDTO report = service.importBooks(new StringReader(ndjson), BookImportService.Format.NDJSON);
+
+        // Then
+        assertThat(report.getImported())
+                .isEqualTo(1);
+        assertThat(report.getErrors())
+                .extracting(BookImportErrorDTO::getIsbn)
+                .containsExactly("9780201633610");
+        assertThat(searchGeneration.current())
+                .isEqualTo(1);
+    }
+}
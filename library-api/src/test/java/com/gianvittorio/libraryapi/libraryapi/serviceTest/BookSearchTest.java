@@ -0,0 +1,164 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchIndexer;
+import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.BookServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.search.automatic_indexing.synchronization.strategy=sync")
+@Import({BookServiceImpl.class, BookSearchGeneration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookSearchTest {
+    @Autowired
+    BookService service;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    IsbnLookup isbnLookup;
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must search books by title and author, best matches first.")
+    public void searchTest() {
+        // Given
+        repository.saveAll(Arrays.asList(
+                newBook("Refactoring", "Martin Fowler", "001"),
+                newBook("Clean Architecture", "Robert Martin", "002"),
+                newBook("Clean Code", "Robert Martin", "003")
+        ));
+
+        // When
+        Page<Book> byAuthor = service.search("martin", PageRequest.of(0, 10));
+        Page<Book> ranked = service.search("clean | code", PageRequest.of(0, 10));
+        Page<Book> bothTerms = service.search("robert clean", PageRequest.of(0, 1));
+
+        // Then
+        assertThat(byAuthor.getTotalElements())
+                .isEqualTo(3);
+        assertThat(ranked.getContent())
+                .extracting(Book::getTitle)
+                .containsExactly("Clean Code", "Clean Architecture");
+        assertThat(bothTerms.getTotalElements())
+                .isEqualTo(2);
+        assertThat(bothTerms.getContent())
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Must keep the search index in sync with updated and deleted books.")
+    public void searchAfterUpdateAndDeleteTest() {
+        // Given
+        Book updated = repository.save(newBook("Clean Code", "Robert Martin", "001"));
+        Book deleted = repository.save(newBook("Clean Architecture", "Robert Martin", "002"));
+
+        // When
+        updated.setTitle("Working Effectively with Legacy Code");
+        service.update(updated);
+        service.delete(deleted);
+
+        // Then
+        assertThat(service.search("clean", PageRequest.of(0, 10)).getContent())
+                .isEmpty();
+        assertThat(service.search("legacy", PageRequest.of(0, 10)).getContent())
+                .extracting(Book::getId)
+                .containsExactly(updated.getId());
+    }
+
+    @Test
+    @DisplayName("Must index books saved in batches, which are flushed and cleared before commit.")
+    public void searchAfterBatchInsertTest() {
+        // Given
+        List<Book> books = IntStream.range(0, 20)
+                .mapToObj(i -> newBook("Title " + i, "Author", String.valueOf(i)))
+                .collect(Collectors.toList());
+
+        // When
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            repository.saveAll(books);
+
+            entityManager.flush();
+            entityManager.clear();
+        });
+
+        // Then
+        assertThat(service.search("author", PageRequest.of(0, 5)).getTotalElements())
+                .isEqualTo(books.size());
+    }
+
+    @Test
+    @DisplayName("Must rebuild the search index of an in-memory database on startup, even when not asked to.")
+    public void reindexInMemoryTest() throws Exception {
+        // Given
+        repository.save(newBook("Clean Code", "Robert Martin", "001"));
+        // the database starts over, while the index still holds its books
+        jdbcTemplate.update("delete from book");
+
+        // When
+        new BookSearchIndexer(entityManagerFactory, dataSource, false).reindex();
+
+        // Then
+        assertThat(service.search("clean", PageRequest.of(0, 10)).getTotalElements())
+                .isZero();
+    }
+
+    private static Book newBook(String title, String author, String isbn) {
+        return Book.builder()
+                .title(title)
+                .author(author)
+                .isbn(isbn)
+                .build();
+    }
+}
@@ -0,0 +1,291 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
+import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.BookServiceImpl;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = BookServiceCacheTest.CacheConfig.class)
+public class BookServiceCacheTest {
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    IsbnLookup isbnLookup;
+
+    @MockBean
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames()
+                .forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("Must hit repository only once when getting the same book by id.")
+    public void getByIdCachedTest() {
+        // Given
+        Book book = newBook();
+        when(repository.findById(1l))
+                .thenReturn(Optional.of(book));
+
+        // When
+        Optional<Book> first = service.getById(1l);
+        Optional<Book> second = service.getById(1l);
+
+        // Then
+        assertThat(first).contains(book);
+        assertThat(second).contains(book);
+
+        verify(repository, times(1))
+                .findById(1l);
+    }
+
+    @Test
+    @DisplayName("Must hit repository only once when getting the same book by isbn.")
+    public void getBookByIsbnCachedTest() {
+        // Given
+        Book book = newBook();
+        when(isbnLookup.find("123"))
+                .thenReturn(Optional.of(book));
+
+        // When
+        service.getBookByIsbn("123");
+        Optional<Book> foundBook = service.getBookByIsbn("123");
+
+        // Then
+        assertThat(foundBook).contains(book);
+
+        verify(isbnLookup, times(1))
+                .find("123");
+    }
+
+    @Test
+    @DisplayName("Must not cache missing books.")
+    public void missingBookNotCachedTest() {
+        // Given
+        when(repository.findById(1l))
+                .thenReturn(Optional.empty());
+
+        // When
+        service.getById(1l);
+        Optional<Book> foundBook = service.getById(1l);
+
+        // Then
+        assertThat(foundBook).isEmpty();
+
+        verify(repository, times(2))
+                .findById(1l);
+    }
+
+    @Test
+    @DisplayName("Must evict book from both caches on update.")
+    public void updateEvictsTest() {
+        // Given
+        Book book = newBook();
+        when(repository.findById(1l))
+                .thenReturn(Optional.of(book));
+        when(isbnLookup.find("123"))
+                .thenReturn(Optional.of(book));
+        when(repository.save(book))
+                .thenReturn(book);
+
+        service.getById(1l);
+        service.getBookByIsbn("123");
+
+        // When
+        service.update(book);
+        service.getById(1l);
+        service.getBookByIsbn("123");
+
+        // Then
+        verify(repository, times(2))
+                .findById(1l);
+        verify(isbnLookup, times(2))
+                .find("123");
+    }
+
+    @Test
+    @DisplayName("Must evict book from both caches on delete.")
+    public void deleteEvictsTest() {
+        // Given
+        Book book = newBook();
+        when(repository.findById(1l))
+                .thenReturn(Optional.of(book));
+        when(isbnLookup.find("123"))
+                .thenReturn(Optional.of(book));
+
+        service.getById(1l);
+        service.getBookByIsbn("123");
+
+        // When
+        service.delete(book);
+
+        // Then
+        assertThat(cacheManager.getCache(BookServiceImpl.BOOKS_CACHE).get(1l))
+                .isNull();
+        assertThat(cacheManager.getCache(BookServiceImpl.BOOKS_BY_ISBN_CACHE).get("123"))
+                .isNull();
+    }
+
+    @Test
+    @DisplayName("Must hit repository only once when finding books by the same filter and page, ignoring case.")
+    public void findCachedTest() {
+        // Given
+        Page<Book> page = new PageImpl<>(Arrays.asList(newBook()), PageRequest.of(0, 10), 1);
+        when(repository.findAll(any(Example.class), any(Pageable.class)))
+                .thenReturn(page);
+
+        // When
+        Page<Book> first = service.find(Book.builder().title("Adventures").build(), PageRequest.of(0, 10));
+        Page<Book> second = service.find(Book.builder().title("ADVENTURES").build(), PageRequest.of(0, 10));
+        service.find(Book.builder().title("adventures").build(), PageRequest.of(1, 10));
+
+        // Then
+        assertThat(first).isSameAs(page);
+        assertThat(second).isSameAs(page);
+
+        verify(repository, times(2))
+                .findAll(any(Example.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Must find books again from repository after a book is saved, updated or deleted.")
+    public void findInvalidatedTest() {
+        // Given
+        Book book = newBook();
+        Book filter = Book.builder().title("Adventures").build();
+        when(repository.findAll(any(Example.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Arrays.asList(book)));
+        when(isbnLookup.exists("123"))
+                .thenReturn(false);
+        when(repository.save(book))
+                .thenReturn(book);
+
+        service.find(filter, PageRequest.of(0, 10));
+
+        // When
+        service.save(book);
+        service.find(filter, PageRequest.of(0, 10));
+        service.update(book);
+        service.find(filter, PageRequest.of(0, 10));
+        service.delete(book);
+        service.find(filter, PageRequest.of(0, 10));
+
+        // Then
+        verify(repository, times(4))
+                .findAll(any(Example.class), any(Pageable.class));
+    }
+
+    @Test
+    @SneakyThrows
+    @DisplayName("Must hit repository only once for concurrent identical searches which miss the cache.")
+    public void findCoalescedTest() {
+        // Given
+        int clients = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+        when(repository.findAll(any(Example.class), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(200);
+                    return new PageImpl<>(Arrays.asList(newBook()));
+                });
+
+        // When
+        List<Future<Page<Book>>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.find(Book.builder().title("Adventures").build(), PageRequest.of(0, 10));
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<Page<Book>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getContent())
+                    .hasSize(1);
+        }
+        executor.shutdown();
+
+        verify(repository, times(1))
+                .findAll(any(Example.class), any(Pageable.class));
+    }
+
+    private static Book newBook() {
+        return Book.builder()
+                .id(1l)
+                .isbn("123")
+                .author("John Doe")
+                .title("The Adventures")
+                .build();
+    }
+
+    @Configuration
+    @EnableCaching
+    static class CacheConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(
+                    BookServiceImpl.BOOKS_CACHE,
+                    BookServiceImpl.BOOKS_BY_ISBN_CACHE,
+                    BookServiceImpl.BOOK_SEARCHES_CACHE
+            );
+        }
+
+        @Bean
+        BookService bookService(BookRepository repository, LoanRepository loanRepository, IsbnLookup isbnLookup) {
+            return new BookServiceImpl(repository, loanRepository, isbnLookup, new BookSearchGeneration());
+        }
+    }
+}
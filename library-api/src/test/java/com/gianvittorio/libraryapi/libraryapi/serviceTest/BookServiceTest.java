@@ -2,9 +2,15 @@ package com.gianvittorio.libraryapi.libraryapi.serviceTest;
 
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.BookSearchGeneration;
 import com.gianvittorio.libraryapi.libraryapi.service.BookService;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnIndex;
+import com.gianvittorio.libraryapi.libraryapi.service.IsbnLookup;
 import com.gianvittorio.libraryapi.libraryapi.service.impl.BookServiceImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,15 +18,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -34,9 +45,15 @@ public class BookServiceTest {
     @MockBean
     BookRepository repository;
 
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    IsbnLookup isbnLookup;
+
     @BeforeEach
     public void setUp() {
-        service = new BookServiceImpl(repository);
+        service = new BookServiceImpl(repository, loanRepository, isbnLookup, new BookSearchGeneration());
     }
 
     @Test
@@ -45,7 +62,7 @@ public class BookServiceTest {
         // Scenario
         Book book = newValidBook();
 
-        when(repository.existsByIsbn(anyString()))
+        when(isbnLookup.exists(anyString()))
                 .thenReturn(false);
         when(repository.save(book))
                 .thenReturn(
@@ -81,7 +98,7 @@ public class BookServiceTest {
         // Scenario
         Book book = newValidBook();
 
-        when(repository.existsByIsbn(anyString()))
+        when(isbnLookup.exists(anyString()))
                 .thenReturn(true);
 
         // Execution
@@ -97,6 +114,34 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Must throw business error exception whenever a concurrent insert of the same ISBN wins the race.")
+    public void mustNotSaveBookWithConcurrentlyInsertedISBN() {
+        // Scenario
+        Book book = newValidBook();
+
+        when(isbnLookup.exists(anyString()))
+                .thenReturn(false);
+        when(repository.save(book))
+                .thenThrow(new DataIntegrityViolationException(
+                        "could not execute statement",
+                        new ConstraintViolationException(
+                                "Unique index or primary key violation",
+                                new SQLException(),
+                                "PUBLIC.UK_BOOK_ISBN_INDEX_2 ON PUBLIC.BOOK(ISBN)"
+                        )
+                ));
+
+        // Execution
+        Throwable exception = catchThrowable(() -> service.save(book));
+
+        // Verification
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("ISBN already exists!");
+
+    }
+
     @Test
     @DisplayName("Must get book by id")
     public void getByIdTest() {
@@ -247,6 +292,26 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Must filter books after the given id.")
+    public void findBookAfterTest() {
+        // Given
+        Book book = newValidBook();
+        book.setId(2l);
+
+        Mockito.when(repository.findByFilterAfter(book.getTitle(), book.getAuthor(), book.getIsbn(), 1l, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(List.of(book), PageRequest.of(0, 10), false));
+
+        // When
+        Slice<Book> result = service.findAfter(book, 1l, 10);
+
+        // Then
+        assertThat(result.getContent())
+                .containsExactly(book);
+        assertThat(result.hasNext())
+                .isFalse();
+    }
+
     @Test
     @DisplayName("Must get book referred to by Isbn.")
     public void getBookByIsbn() {
@@ -254,14 +319,14 @@ public class BookServiceTest {
         Book book = newValidBook();
         book.setId(1l);
 
-        Mockito.when(repository.findByIsbn(book.getIsbn()))
+        Mockito.when(isbnLookup.find(book.getIsbn()))
                 .thenReturn(Optional.of(book));
 
         // When
         Optional<Book> foundBook = service.getBookByIsbn(book.getIsbn());
 
         // Then
-        verify(repository).findByIsbn(book.getIsbn());
+        verify(isbnLookup).find(book.getIsbn());
 
         assertThat(foundBook.isPresent())
                 .isTrue();
@@ -273,6 +338,72 @@ public class BookServiceTest {
                 .isEqualTo(book.getIsbn());
     }
 
+    @Test
+    @DisplayName("Must get book referred to by Isbn through the ISBN index, when it covers the Isbn.")
+    public void getBookByIsbnIndexedTest() {
+        // Given
+        Book book = newValidBook();
+        book.setId(1l);
+
+        IsbnIndex isbnIndex = mock(IsbnIndex.class);
+        ((BookServiceImpl) service).setIsbnIndex(isbnIndex);
+
+        when(isbnIndex.covers(anyString()))
+                .thenReturn(true);
+        when(isbnIndex.find("9780132350884"))
+                .thenReturn(OptionalLong.of(1l));
+        when(isbnIndex.find("9780201633610"))
+                .thenReturn(OptionalLong.empty());
+        when(repository.findById(1l))
+                .thenReturn(Optional.of(book));
+
+        // When
+        Optional<Book> foundBook = service.getBookByIsbn("9780132350884");
+        Optional<Book> missingBook = service.getBookByIsbn("9780201633610");
+
+        // Then
+        assertThat(foundBook)
+                .contains(book);
+        assertThat(missingBook)
+                .isEmpty();
+
+        verify(repository, times(1))
+                .findById(anyLong());
+        verify(isbnLookup, never())
+                .find(anyString());
+    }
+
+    @Test
+    @DisplayName("Must get loans of book.")
+    public void getLoansByBookTest() {
+        // Given
+        Book book = newValidBook();
+        book.setId(1l);
+
+        Loan loan = Loan.builder()
+                .id(1l)
+                .book(book)
+                .customer("Fulano")
+                .build();
+
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Mockito.when(loanRepository.findByBook(book, pageRequest))
+                .thenReturn(new PageImpl<>(List.of(loan), pageRequest, 1));
+
+        // When
+        Page<Loan> loans = service.getLoansByBook(book, pageRequest);
+
+        // Then
+        assertThat(loans.getContent())
+                .containsExactly(loan);
+        assertThat(loans.getTotalElements())
+                .isEqualTo(1);
+
+        verify(repository, never())
+                .findById(anyLong());
+    }
+
     private static Book newValidBook() {
         return Book.builder()
                 .isbn("123")
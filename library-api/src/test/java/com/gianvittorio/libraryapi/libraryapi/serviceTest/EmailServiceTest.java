@@ -0,0 +1,223 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.EmailDeadLetter;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.EmailDeadLetterRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.EmailServiceImpl;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.mail.Message;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class EmailServiceTest {
+    private static final String SENDER = "mail@library-api.com";
+
+    private static final String MESSAGE = "Loan has expired";
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @MockBean
+    EmailDeadLetterRepository deadLetterRepository;
+
+    EmailServiceImpl service;
+
+    @AfterEach
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    @SneakyThrows
+    @DisplayName("Must send one message per recipient, without disclosing the other recipients.")
+    public void sendMailTest() {
+        // Given
+        service = newService(smtpSender(ServerSetupTest.SMTP.getPort()), 2);
+
+        List<String> mailList = Arrays.asList("a@email.com", "b@email.com", "c@email.com");
+
+        // When
+        service.sendMail(mailList, MESSAGE);
+
+        // Then
+        assertThat(greenMail.waitForIncomingEmail(5000, mailList.size()))
+                .isTrue();
+
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertThat(messages)
+                .hasSize(mailList.size());
+        for (MimeMessage message : messages) {
+            assertThat(message.getRecipients(Message.RecipientType.TO))
+                    .hasSize(1);
+            assertThat(message.getSubject())
+                    .isEqualTo("Expired loan");
+        }
+        assertThat(Arrays.stream(messages).map(this::recipient))
+                .containsExactlyInAnyOrderElementsOf(mailList);
+
+        verify(deadLetterRepository, never())
+                .saveAll(any());
+    }
+
+    @Test
+    @SneakyThrows
+    @DisplayName("Must retry only the messages which failed to be sent.")
+    public void retryFailedMessagesTest() {
+        // Given
+        List<List<String>> attempts = new CopyOnWriteArrayList<>();
+        CountDownLatch retried = new CountDownLatch(2);
+
+        JavaMailSender javaMailSender = new JavaMailSenderImpl() {
+            @Override
+            public void send(SimpleMailMessage... simpleMessages) {
+                attempts.add(Arrays.stream(simpleMessages)
+                        .map(message -> message.getTo()[0])
+                        .collect(Collectors.toList()));
+                retried.countDown();
+
+                if (attempts.size() == 1) {
+                    throw new MailSendException(Collections.singletonMap(simpleMessages[1], new RuntimeException("Busy")));
+                }
+            }
+        };
+        service = newService(javaMailSender, 50);
+
+        // When
+        service.sendMail(Arrays.asList("a@email.com", "b@email.com"), MESSAGE);
+
+        // Then
+        assertThat(retried.await(5, TimeUnit.SECONDS))
+                .isTrue();
+        assertThat(attempts)
+                .containsExactly(
+                        Arrays.asList("a@email.com", "b@email.com"),
+                        Collections.singletonList("b@email.com")
+                );
+
+        verify(deadLetterRepository, after(200).never())
+                .saveAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Must record a dead letter for each message still failing after the last attempt.")
+    public void deadLetterTest() {
+        // Given
+        int closedPort = ServerSetupTest.SMTP.getPort() + 1;
+        service = newService(smtpSender(closedPort), 50);
+
+        // When
+        service.sendMail(Arrays.asList("a@email.com", "b@email.com"), MESSAGE);
+
+        // Then
+        ArgumentCaptor<List<EmailDeadLetter>> captor = ArgumentCaptor.forClass(List.class);
+        verify(deadLetterRepository, timeout(5000))
+                .saveAll(captor.capture());
+
+        assertThat(captor.getValue())
+                .extracting(EmailDeadLetter::getRecipient)
+                .containsExactly("a@email.com", "b@email.com");
+        assertThat(captor.getValue())
+                .allSatisfy(deadLetter -> {
+                    assertThat(deadLetter.getAttempts()).isEqualTo(3);
+                    assertThat(deadLetter.getLastError()).isNotBlank();
+                });
+    }
+
+    @Test
+    @SneakyThrows
+    @DisplayName("Must send every batch, waiting on the caller while the queue is full, without sending on it.")
+    public void fullQueueTest() {
+        // Given
+        List<String> recipients = new CopyOnWriteArrayList<>();
+        List<String> senders = new CopyOnWriteArrayList<>();
+
+        JavaMailSender javaMailSender = new JavaMailSenderImpl() {
+            @Override
+            @SneakyThrows
+            public void send(SimpleMailMessage... simpleMessages) {
+                senders.add(Thread.currentThread().getName());
+                Arrays.stream(simpleMessages)
+                        .forEach(message -> recipients.add(message.getTo()[0]));
+                Thread.sleep(5);
+            }
+        };
+        service = newService(javaMailSender, 1, 1, 1);
+
+        List<String> mailList = IntStream.range(0, 20)
+                .mapToObj(i -> "user" + i + "@email.com")
+                .collect(Collectors.toList());
+
+        // When
+        service.sendMail(mailList, MESSAGE);
+        service.destroy();
+
+        // Then
+        assertThat(recipients)
+                .containsExactlyInAnyOrderElementsOf(mailList);
+        assertThat(senders)
+                .allMatch(name -> name.startsWith("mail-"));
+        verify(deadLetterRepository, never())
+                .saveAll(any());
+    }
+
+    private EmailServiceImpl newService(JavaMailSender javaMailSender, int batchSize) {
+        return newService(javaMailSender, 2, 10, batchSize);
+    }
+
+    private EmailServiceImpl newService(JavaMailSender javaMailSender, int poolSize, int queueCapacity, int batchSize) {
+        return new EmailServiceImpl(
+                javaMailSender,
+                deadLetterRepository,
+                SENDER,
+                poolSize,
+                queueCapacity,
+                batchSize,
+                3,
+                Duration.ofMillis(10),
+                2
+        );
+    }
+
+    private static JavaMailSender smtpSender(int port) {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        javaMailSender.setPort(port);
+
+        return javaMailSender;
+    }
+
+    @SneakyThrows
+    private String recipient(MimeMessage message) {
+        return message.getRecipients(Message.RecipientType.TO)[0].toString();
+    }
+}
@@ -0,0 +1,164 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gianvittorio.libraryapi.libraryapi.mapper.BookMapper;
+import com.gianvittorio.libraryapi.libraryapi.mapper.LoanMapper;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.ExportService;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.ExportServiceImpl;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+public class ExportServiceTest {
+    ExportService service;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookMapper bookMapper;
+
+    @Autowired
+    LoanMapper loanMapper;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ExportServiceImpl(
+                bookRepository,
+                loanRepository,
+                bookMapper,
+                loanMapper,
+                entityManager.getEntityManager(),
+                // as configured by Spring Boot
+                Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build()
+        );
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must export every book as NDJSON, past the rows of a single fetch.")
+    public void exportBooksNdjsonTest() {
+        // Given
+        int books = Integer.parseInt(BookRepository.STREAM_FETCH_SIZE) * 2 + 1;
+        IntStream.range(0, books)
+                .mapToObj(i -> Book.builder().title("Title " + i).author("Author").isbn(String.format("%04d", i)).build())
+                .forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = service.exportBooks(out, ExportService.Format.NDJSON);
+
+        // Then
+        List<String> lines = lines(out);
+        assertThat(rows)
+                .isEqualTo(books);
+        assertThat(lines)
+                .hasSize(books);
+        assertThat(lines.get(0))
+                .startsWith("{\"id\":")
+                .contains("\"title\":\"Title 0\"", "\"isbn\":\"0000\"");
+        assertThat(lines.get(books - 1))
+                .contains("\"isbn\":\"" + String.format("%04d", books - 1) + "\"");
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must export books as CSV, quoting values with separators.")
+    public void exportBooksCsvTest() {
+        // Given
+        Book book = entityManager.persist(Book.builder().title("Refactoring, 2nd \"ed\"").author("Fowler").isbn("001").build());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        service.exportBooks(out, ExportService.Format.CSV);
+
+        // Then
+        assertThat(lines(out))
+                .containsExactly(
+                        "id,title,author,isbn",
+                        book.getId() + ",\"Refactoring, 2nd \"\"ed\"\"\",Fowler,001"
+                );
+    }
+
+    @SneakyThrows
+    @Test
+    @DisplayName("Must export the loan history with the book of each loan.")
+    public void exportLoansTest() {
+        // Given
+        Book book = entityManager.persist(Book.builder().title("Title").author("Author").isbn("001").build());
+        Loan returned = entityManager.persist(Loan.builder()
+                .book(book)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2020, 1, 1))
+                .returned(true)
+                .build());
+        Loan open = entityManager.persist(Loan.builder()
+                .book(book)
+                .customer("Ciclano")
+                .loanDate(LocalDate.of(2020, 2, 1))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+
+        // When
+        service.exportLoans(csv, ExportService.Format.CSV);
+        service.exportLoans(ndjson, ExportService.Format.NDJSON);
+
+        // Then
+        assertThat(lines(csv))
+                .containsExactly(
+                        "id,customer,email,loanDate,returned,bookId,isbn",
+                        returned.getId() + ",Fulano,fulano@email.com,2020-01-01,true," + book.getId() + ",001",
+                        open.getId() + ",Ciclano,,2020-02-01,," + book.getId() + ",001"
+                );
+        assertThat(lines(ndjson).get(0))
+                .isEqualTo("{\"id\":" + returned.getId() + ",\"customer\":\"Fulano\",\"email\":\"fulano@email.com\"," +
+                        "\"loanDate\":\"2020-01-01\",\"returned\":true,\"bookId\":" + book.getId() + ",\"isbn\":\"001\"}");
+    }
+
+    private static List<String> lines(ByteArrayOutputStream out) {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8)
+                .lines()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,201 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.LegacyIsbns;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.IsbnLookupImpl;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+public class IsbnLookupTest {
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    LegacyIsbns legacyIsbns;
+
+    IsbnLookupImpl isbnLookup;
+
+    @AfterEach
+    public void tearDown() {
+        isbnLookup.destroy();
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    @DisplayName("Must look concurrent ISBNs up with a single query, once per distinct ISBN.")
+    public void batchTest() {
+        // Given
+        isbnLookup = newIsbnLookup(Duration.ofMillis(100), false);
+
+        when(repository.findByIsbnIn(anyCollection()))
+                .thenReturn(Arrays.asList(newBook(1l, "9780132350884"), newBook(2l, "9780201633610")));
+
+        List<String> isbns = Arrays.asList("9780132350884", "9780201633610", "9780596007126", "9780132350884", "9780201633610", "9780596007126", "9780132350884", "9780201633610");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(isbns.size());
+
+        // When
+        List<Future<Optional<Book>>> results = new ArrayList<>();
+        for (String isbn : isbns) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return isbnLookup.find(isbn);
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (int i = 0; i < isbns.size(); i++) {
+            Optional<Book> book = results.get(i).get(5, TimeUnit.SECONDS);
+
+            assertThat(book.map(Book::getIsbn))
+                    .isEqualTo("9780596007126".equals(isbns.get(i)) ? Optional.empty() : Optional.of(isbns.get(i)));
+        }
+        executor.shutdown();
+
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, times(1))
+                .findByIsbnIn(captor.capture());
+        assertThat(captor.getValue())
+                .containsExactlyInAnyOrder("9780132350884", "9780201633610", "9780596007126");
+    }
+
+    @Test
+    @DisplayName("Must answer ISBNs unknown to the Bloom filter without a query.")
+    public void bloomFilterTest() {
+        // Given
+        isbnLookup = newIsbnLookup(Duration.ofMillis(1), true);
+
+        when(repository.streamIsbns())
+                .thenReturn(Stream.of("9780132350884", "9780201633610"));
+        when(repository.findByIsbnIn(anyCollection()))
+                .thenReturn(Collections.singletonList(newBook(1l, "9780132350884")));
+
+        isbnLookup.loadKnownIsbns();
+
+        // When
+        boolean known = isbnLookup.exists("9780132350884");
+        boolean unknown = isbnLookup.exists("9780201485677");
+        isbnLookup.add("9780306406157");
+        isbnLookup.exists("9780306406157");
+
+        // Then
+        assertThat(known).isTrue();
+        assertThat(unknown).isFalse();
+
+        verify(repository)
+                .findByIsbnIn(Collections.singletonList("9780132350884"));
+        verify(repository)
+                .findByIsbnIn(Collections.singletonList("9780306406157"));
+        verify(repository, never())
+                .findByIsbnIn(Collections.singletonList("9780201485677"));
+    }
+
+    @Test
+    @DisplayName("Must look legacy ISBNs up as they are, others by their ISBN-13, and answer other invalid ISBNs without a query.")
+    public void invalidIsbnTest() {
+        // Given
+        isbnLookup = newIsbnLookup(Duration.ofMillis(1), false);
+
+        when(legacyIsbns.contains("123"))
+                .thenReturn(true);
+
+        List<Book> books = Arrays.asList(newBook(1l, "9780132350884"), newBook(2l, "123"));
+        when(repository.findByIsbnIn(anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<String> isbns = invocation.getArgument(0);
+
+                    return books.stream()
+                            .filter(book -> isbns.contains(book.getIsbn()))
+                            .collect(Collectors.toList());
+                });
+
+        // When
+        Optional<Book> malformed = isbnLookup.find("123");
+        Optional<Book> wrongCheckDigit = isbnLookup.find("978-0-13-235088-5");
+        Optional<Book> isbn10 = isbnLookup.find("0-13-235088-2");
+
+        // Then
+        assertThat(malformed)
+                .map(Book::getId)
+                .hasValue(2l);
+        assertThat(wrongCheckDigit).isEmpty();
+        assertThat(isbn10)
+                .map(Book::getId)
+                .hasValue(1l);
+
+        verify(repository, times(2))
+                .findByIsbnIn(anyCollection());
+        verify(repository)
+                .findByIsbnIn(Collections.singletonList("123"));
+        verify(repository)
+                .findByIsbnIn(Collections.singletonList("9780132350884"));
+    }
+
+    @Test
+    @DisplayName("Must fail every lookup of a batch whose query failed.")
+    public void failedBatchTest() {
+        // Given
+        isbnLookup = newIsbnLookup(Duration.ofMillis(1), false);
+
+        when(repository.findByIsbnIn(anyCollection()))
+                .thenThrow(new QueryTimeoutException("Timed out"));
+
+        // When
+        Throwable exception = catchThrowable(() -> isbnLookup.find("9780132350884"));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(QueryTimeoutException.class)
+                .hasMessage("Timed out");
+    }
+
+    private IsbnLookupImpl newIsbnLookup(Duration batchWindow, boolean bloomFilterEnabled) {
+        return new IsbnLookupImpl(repository, legacyIsbns, transactionManager, batchWindow, 100, bloomFilterEnabled, 1000, 0.01);
+    }
+
+    private static Book newBook(Long id, String isbn) {
+        return Book.builder()
+                .id(id)
+                .isbn(isbn)
+                .title("The Adventures")
+                .author("John Doe")
+                .build();
+    }
+}
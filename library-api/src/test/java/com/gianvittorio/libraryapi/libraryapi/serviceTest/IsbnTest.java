@@ -0,0 +1,105 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.validation.IsbnValidator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class IsbnTest {
+    @Test
+    @DisplayName("Must pack every spelling of an ISBN-13 into the same number.")
+    public void packIsbn13Test() {
+        // Given
+        // When
+        long plain = Isbn.pack("9780132350884");
+        long hyphenated = Isbn.pack("978-0-13-235088-4");
+        long spaced = Isbn.pack("978 0 13 235088 4");
+        long prefix979 = Isbn.pack("979-10-90636-07-1");
+
+        // Then
+        assertThat(plain)
+                .isEqualTo(9780132350884L)
+                .isEqualTo(hyphenated)
+                .isEqualTo(spaced);
+        assertThat(prefix979)
+                .isEqualTo(9791090636071L);
+    }
+
+    @Test
+    @DisplayName("Must pack ISBN-10s as the ISBN-13 with the 978 prefix.")
+    public void packIsbn10Test() {
+        // Given
+        // When
+        long isbn10 = Isbn.pack("0-13-235088-2");
+        long checkX = Isbn.pack("0-8044-2957-X");
+        long lowerCaseX = Isbn.pack("080442957x");
+
+        // Then
+        assertThat(isbn10)
+                .isEqualTo(9780132350884L);
+        assertThat(checkX)
+                .isEqualTo(9780804429573L)
+                .isEqualTo(lowerCaseX);
+    }
+
+    @Test
+    @DisplayName("Must reject malformed ISBNs and ISBNs with a wrong check digit.")
+    public void packInvalidTest() {
+        assertThat(Isbn.pack(null)).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("123")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("9780132350885")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("0-13-235088-3")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("97801323508840")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("0X-13-235088")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("080442957X0")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("978013235088X")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("9770132350885")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.pack("978_0132350884")).isEqualTo(Isbn.INVALID);
+    }
+
+    @Test
+    @DisplayName("Must normalize valid ISBNs to their ISBN-13 digits, and leave other values as they are.")
+    public void normalizeTest() {
+        assertThat(Isbn.normalize("0-306-40615-2")).isEqualTo("9780306406157");
+        assertThat(Isbn.normalize("978-0-306-40615-7")).isEqualTo("9780306406157");
+        assertThat(Isbn.normalize("123")).isEqualTo("123");
+        assertThat(Isbn.normalize(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Must compare ISBNs by value, and refuse to create invalid ones.")
+    public void ofTest() {
+        // Given
+        // When
+        Isbn isbn10 = Isbn.of("0-201-48567-2");
+        Isbn isbn13 = Isbn.of("9780201485677");
+        Throwable exception = catchThrowable(() -> Isbn.of("0-201-48567-3"));
+
+        // Then
+        assertThat(isbn10)
+                .isEqualTo(isbn13)
+                .hasSameHashCodeAs(isbn13)
+                .isEqualByComparingTo(isbn13);
+        assertThat(isbn10.toLong())
+                .isEqualTo(9780201485677L);
+        assertThat(isbn10.toString())
+                .isEqualTo("9780201485677");
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid ISBN: 0-201-48567-3");
+    }
+
+    @Test
+    @DisplayName("Must accept missing ISBNs, leaving them to @NotBlank.")
+    public void validatorTest() {
+        IsbnValidator validator = new IsbnValidator();
+
+        assertThat(validator.isValid(null, null)).isTrue();
+        assertThat(validator.isValid("0-201-48567-2", null)).isTrue();
+        assertThat(validator.isValid("0-201-48567-3", null)).isFalse();
+    }
+}
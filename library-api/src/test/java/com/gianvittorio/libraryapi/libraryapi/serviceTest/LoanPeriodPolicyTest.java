@@ -0,0 +1,58 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.config.LoanPeriodProperties;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.LoanPeriodPolicyImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@EnableConfigurationProperties(LoanPeriodProperties.class)
+@Import(LoanPeriodPolicyImpl.class)
+@TestPropertySource(properties = {
+        "application.loan.period.default-period=4d",
+        "application.loan.period.by-isbn[123]=2w",
+        "application.loan.period.by-email-domain[staff.library-api.com]=28d"
+})
+public class LoanPeriodPolicyTest {
+    private static final LocalDate LOAN_DATE = LocalDate.of(2020, 1, 1);
+
+    @Autowired
+    LoanPeriodPolicy policy;
+
+    @Test
+    @DisplayName("Must set the due date by book first, then by customer type, then by default.")
+    public void dueDateTest() {
+        assertThat(policy.dueDate(newLoan("321", "fulano@email.com")))
+                .isEqualTo(LocalDate.of(2020, 1, 4));
+        assertThat(policy.dueDate(newLoan("321", "fulano@Staff.Library-Api.com")))
+                .isEqualTo(LocalDate.of(2020, 1, 28));
+        assertThat(policy.dueDate(newLoan("123", "fulano@staff.library-api.com")))
+                .isEqualTo(LocalDate.of(2020, 1, 14));
+        assertThat(policy.dueDate(newLoan(null, null)))
+                .isEqualTo(LocalDate.of(2020, 1, 4));
+    }
+
+    private static Loan newLoan(String isbn, String customerEmail) {
+        return Loan.builder()
+                .book(Book.builder().id(1l).isbn(isbn).build())
+                .customer("Fulano")
+                .customerEmail(customerEmail)
+                .loanDate(LOAN_DATE)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.LoanReminderConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanReminderConsumerTest {
+    @MockBean
+    EmailService emailService;
+
+    LoanReminderConsumer consumer;
+
+    @BeforeEach
+    public void setUp() {
+        consumer = new LoanReminderConsumer(emailService);
+    }
+
+    @Test
+    @DisplayName("Must remind customers of the return date of new loans, and confirm returns.")
+    public void consumeTest() {
+        // Given
+        LoanEventDTO created = LoanEventDTO.builder()
+                .type(LoanEventDTO.Type.LOAN_CREATED)
+                .loanId(1l)
+                .isbn("123")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2020, 1, 1))
+                .dueDate(LocalDate.of(2020, 1, 5))
+                .build();
+
+        LoanEventDTO returned = LoanEventDTO.builder()
+                .type(LoanEventDTO.Type.LOAN_RETURNED)
+                .loanId(2l)
+                .isbn("321")
+                .customerEmail("ciclano@email.com")
+                .build();
+
+        LoanEventDTO withoutEmail = LoanEventDTO.builder()
+                .type(LoanEventDTO.Type.LOAN_CREATED)
+                .loanId(3l)
+                .loanDate(LocalDate.of(2020, 1, 1))
+                .build();
+
+        // When
+        consumer.consume(Arrays.asList(created, returned, withoutEmail));
+
+        // Then
+        verify(emailService)
+                .sendMail(
+                        Collections.singletonList("fulano@email.com"),
+                        "Loan reminder",
+                        "Book 123 is on loan to you, please return it by 2020-01-05."
+                );
+        verify(emailService)
+                .sendMail(
+                        Collections.singletonList("ciclano@email.com"),
+                        "Loan returned",
+                        "Book 321 has been returned, thank you."
+                );
+        verify(emailService, times(2))
+                .sendMail(anyList(), anyString(), anyString());
+    }
+}
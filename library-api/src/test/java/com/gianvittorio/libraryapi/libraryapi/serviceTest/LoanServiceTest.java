@@ -1,33 +1,47 @@
 package com.gianvittorio.libraryapi.libraryapi.serviceTest;
 
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
 import com.gianvittorio.libraryapi.libraryapi.dto.LoanFilterDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnReportDTO;
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanReturnResultDTO;
 import com.gianvittorio.libraryapi.libraryapi.exception.BusinessException;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
 import com.gianvittorio.libraryapi.libraryapi.model.entity.Loan;
 import com.gianvittorio.libraryapi.libraryapi.model.repository.LoanRepository;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.ReturnableLoan;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanPeriodPolicy;
 import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
 import com.gianvittorio.libraryapi.libraryapi.service.impl.LoanServiceImpl;
 import lombok.SneakyThrows;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -37,11 +51,17 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    LoanPeriodPolicy loanPeriodPolicy;
+
     LoanService service;
 
     @BeforeEach
     public void setUp() {
-        service = new LoanServiceImpl(repository);
+        service = new LoanServiceImpl(repository, outboxService, loanPeriodPolicy);
     }
 
     @Test
@@ -62,18 +82,20 @@ public class LoanServiceTest {
                 .book(book)
                 .build();
 
-        when(repository.save(savingLoan))
+        when(repository.saveAndFlush(savingLoan))
                 .thenReturn(savedLoan);
-
-        when(repository.existsByBookAndNotReturned(book))
-                .thenReturn(false);
+        when(loanPeriodPolicy.dueDate(savingLoan))
+                .thenReturn(LocalDate.now().plusDays(4));
 
         // When
         Loan loan = service.save(savingLoan);
 
         // Then
         verify(repository)
-                .save(savingLoan);
+                .saveAndFlush(savingLoan);
+
+        assertThat(savingLoan.getDueDate())
+                .isEqualTo(LocalDate.now().plusDays(4));
 
         assertThat(loan)
                 .isNotNull();
@@ -102,8 +124,8 @@ public class LoanServiceTest {
                 .book(book)
                 .build();
 
-        when(repository.existsByBookAndNotReturned(book))
-                .thenReturn(true);
+        when(repository.saveAndFlush(savingLoan))
+                .thenThrow(activeBookViolation());
 
         // When
         Throwable runtimeException = catchThrowable(() -> service.save(savingLoan));
@@ -114,7 +136,29 @@ public class LoanServiceTest {
                 .hasMessage("Book is currently loaned!");
 
         verify(repository, never())
-                .save(savingLoan);
+                .existsByBookAndNotReturned(book);
+    }
+
+    @Test
+    @DisplayName("Must rethrow integrity violations not caused by an open loan of the same book.")
+    public void otherIntegrityViolationSaveTest() {
+        // Given
+        Loan savingLoan = newLoan();
+
+        DataIntegrityViolationException violation = new DataIntegrityViolationException(
+                "could not execute statement",
+                new ConstraintViolationException("NULL not allowed", new SQLException(), "customer")
+        );
+
+        when(repository.saveAndFlush(savingLoan))
+                .thenThrow(violation);
+
+        // When
+        Throwable runtimeException = catchThrowable(() -> service.save(savingLoan));
+
+        // Then
+        assertThat(runtimeException)
+                .isSameAs(violation);
     }
 
     @Test
@@ -229,21 +273,44 @@ public class LoanServiceTest {
     }
 
     @Test
-    @DisplayName("Must return loans older than given date, which have not been returned.")
-    public void findByLoanDateLessThanAndNotReturnedTest() {
+    @DisplayName("Must filter loans after the given id.")
+    public void findLoansAfterTest() {
+        // Given
+        Loan loan = newLoan();
+        loan.setId(2l);
+
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder()
+                .isbn("321")
+                .customer("Fulano")
+                .build();
+
+        when(repository.findByBookIsbnOrCustomerAfter("321", "Fulano", 1l, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(loan), PageRequest.of(0, 10), false));
+
+        // When
+        Slice<Loan> loans = service.findAfter(loanFilterDTO, 1l, 10);
+
+        // Then
+        assertThat(loans.getContent())
+                .containsExactly(loan);
+    }
+
+    @Test
+    @DisplayName("Must return loans due before today, which have not been returned.")
+    public void findByDueDateBeforeAndNotReturnedTest() {
         // Given
         String customer = "fulano";
         String customerEmail = customer.concat("@domain.com");
         LocalDate today = LocalDate.now();
-        LocalDate loanDate = today.minusDays(4);
 
         Loan loan = Loan.builder()
                 .customer(customer)
                 .customerEmail(customerEmail)
-                .loanDate(loanDate)
+                .loanDate(today.minusDays(5))
+                .dueDate(today.minusDays(1))
                 .build();
 
-        when(repository.findByLoanDateLessThanAndNotReturned(loanDate))
+        when(repository.findByDueDateBeforeAndNotReturned(today))
                 .thenReturn(Collections.singletonList(loan));
 
         // When
@@ -251,7 +318,7 @@ public class LoanServiceTest {
 
         // Then
         verify(repository)
-                .findByLoanDateLessThanAndNotReturned(loanDate);
+                .findByDueDateBeforeAndNotReturned(today);
 
         assertThat(lateLoans)
                 .isNotNull();
@@ -262,9 +329,9 @@ public class LoanServiceTest {
 
     @Test
     @DisplayName("Must return empty list whenever there are no late loans.")
-    public void findNotByLoanDateLessThanAndNotReturnedTest() {
+    public void findNotByDueDateBeforeAndNotReturnedTest() {
         // Given
-        when(repository.findByLoanDateLessThanAndNotReturned(any(LocalDate.class)))
+        when(repository.findByDueDateBeforeAndNotReturned(any(LocalDate.class)))
                 .thenReturn(Collections.emptyList());
 
         // When
@@ -275,6 +342,175 @@ public class LoanServiceTest {
                 .isEmpty();
     }
 
+    @Test
+    @DisplayName("Must page loans overdue as of today.")
+    public void getOverdueLoansTest() {
+        // Given
+        Loan loan = newLoan();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        when(repository.findOverdue(LocalDate.now(), pageRequest))
+                .thenReturn(new PageImpl<>(Collections.singletonList(loan), pageRequest, 1));
+
+        // When
+        Page<Loan> overdue = service.getOverdueLoans(pageRequest);
+
+        // Then
+        assertThat(overdue.getContent())
+                .containsExactly(loan);
+        assertThat(overdue.getTotalElements())
+                .isEqualTo(1);
+    }
+
+    private static DataIntegrityViolationException activeBookViolation() {
+        return new DataIntegrityViolationException(
+                "could not execute statement",
+                new ConstraintViolationException(
+                        "Unique index or primary key violation",
+                        new SQLException(),
+                        "PUBLIC.UK_LOAN_ACTIVE_BOOK_INDEX_2 ON PUBLIC.LOAN(ACTIVE_BOOK_ID)"
+                )
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Must record loan-created and loan-returned events along with the loan changes.")
+    public void loanEventsTest() {
+        // Given
+        Loan loan = newLoan();
+        loan.getBook().setIsbn("123");
+        loan.setCustomerEmail("fulano@email.com");
+
+        when(repository.saveAndFlush(loan))
+                .thenAnswer(invocation -> {
+                    loan.setId(1l);
+                    loan.markActiveBook();
+                    return loan;
+                });
+        when(repository.save(loan))
+                .thenAnswer(invocation -> {
+                    loan.markActiveBook();
+                    return loan;
+                });
+
+        // When
+        service.save(loan);
+
+        loan.setCustomer("Ciclano");
+        service.update(loan);
+
+        loan.setReturned(true);
+        service.update(loan);
+        service.update(loan);
+
+        // Then
+        ArgumentCaptor<List<LoanEventDTO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxService, times(2))
+                .append(captor.capture());
+
+        assertThat(captor.getAllValues())
+                .flatExtracting(events -> events)
+                .extracting(LoanEventDTO::getType, LoanEventDTO::getLoanId, LoanEventDTO::getIsbn, LoanEventDTO::getCustomerEmail)
+                .containsExactly(
+                        tuple(LoanEventDTO.Type.LOAN_CREATED, 1l, "123", "fulano@email.com"),
+                        tuple(LoanEventDTO.Type.LOAN_RETURNED, 1l, "123", "fulano@email.com")
+                );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Must return open loans by id or isbn in one update, reporting each one asked for.")
+    public void returnAllTest() {
+        // Given
+        when(repository.findReturnableByIdIn(any()))
+                .thenReturn(Arrays.asList(returnableLoan(1l, "a", 10l), returnableLoan(2l, "b", null)));
+        when(repository.findOpenReturnableByBookIsbnIn(any()))
+                .thenReturn(Arrays.asList(returnableLoan(1l, "a", 10l), returnableLoan(4l, "d", 40l)));
+        when(repository.findLoanedIsbnsIn(any()))
+                .thenReturn(Collections.singletonList("e"));
+        when(repository.markReturned(any()))
+                .thenReturn(2);
+
+        // When
+        LoanReturnReportDTO report = service.returnAll(Arrays.asList(1l, 2l, 3l, 1l), Arrays.asList("a", "d", "e", "f"));
+
+        // Then
+        assertThat(report.getReceived())
+                .isEqualTo(7);
+        assertThat(report.getReturned())
+                .isEqualTo(2);
+        assertThat(report.getResults())
+                .extracting(LoanReturnResultDTO::getId, LoanReturnResultDTO::getIsbn, LoanReturnResultDTO::getStatus)
+                .containsExactly(
+                        tuple(1l, "a", LoanReturnResultDTO.Status.RETURNED),
+                        tuple(2l, "b", LoanReturnResultDTO.Status.ALREADY_RETURNED),
+                        tuple(3l, null, LoanReturnResultDTO.Status.NOT_FOUND),
+                        tuple(1l, "a", LoanReturnResultDTO.Status.ALREADY_RETURNED),
+                        tuple(4l, "d", LoanReturnResultDTO.Status.RETURNED),
+                        tuple(null, "e", LoanReturnResultDTO.Status.ALREADY_RETURNED),
+                        tuple(null, "f", LoanReturnResultDTO.Status.NOT_FOUND)
+                );
+
+        verify(repository, times(1))
+                .markReturned(new LinkedHashSet<>(Arrays.asList(1l, 4l)));
+        verify(repository, never())
+                .save(any(Loan.class));
+
+        ArgumentCaptor<List<LoanEventDTO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxService)
+                .append(captor.capture());
+
+        assertThat(captor.getValue())
+                .extracting(LoanEventDTO::getType, LoanEventDTO::getLoanId, LoanEventDTO::getIsbn)
+                .containsExactly(
+                        tuple(LoanEventDTO.Type.LOAN_RETURNED, 1l, "a"),
+                        tuple(LoanEventDTO.Type.LOAN_RETURNED, 4l, "d")
+                );
+    }
+
+    @Test
+    @DisplayName("Must not touch the database when nothing is asked to be returned.")
+    public void returnNothingTest() {
+        // When
+        LoanReturnReportDTO report = service.returnAll(null, Collections.emptyList());
+
+        // Then
+        assertThat(report.getResults())
+                .isEmpty();
+
+        verifyNoInteractions(repository);
+    }
+
+    private static ReturnableLoan returnableLoan(Long id, String isbn, Long activeBookId) {
+        return new ReturnableLoan() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getIsbn() {
+                return isbn;
+            }
+
+            @Override
+            public String getCustomer() {
+                return "Fulano";
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return "fulano@email.com";
+            }
+
+            @Override
+            public Long getActiveBookId() {
+                return activeBookId;
+            }
+        };
+    }
+
     public static Loan newLoan() {
         Book book = Book.builder()
                 .id(1l)
@@ -0,0 +1,153 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.Isbn;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.Book;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.BookRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.MappedIsbnIndex;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.gianvittorio.libraryapi.libraryapi.repositoryTest.BookRepositoryTest.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "application.books.isbn-index.enabled=true",
+        "application.books.isbn-index.initial-capacity=16"
+})
+@Import(MappedIsbnIndex.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MappedIsbnIndexTest {
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    MappedIsbnIndex index;
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void indexPath(DynamicPropertyRegistry registry) {
+        registry.add("application.books.isbn-index.path", () -> directory.resolve("isbn-index.bin").toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must map the ISBNs of saved books to their ids, and forget deleted books.")
+    public void saveAndDeleteTest() {
+        // Given
+        Book first = repository.save(newBook("978-0132350884"));
+        Book second = repository.save(newBook("9780201633610"));
+
+        // When
+        repository.delete(second);
+
+        // Then
+        assertThat(index.covers("123"))
+                .isFalse();
+        assertThat(index.find("9780132350884"))
+                .isEqualTo(OptionalLong.of(first.getId()));
+        assertThat(index.find("0-13-235088-2"))
+                .isEqualTo(OptionalLong.of(first.getId()));
+        assertThat(index.find("9780201633610"))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("Must grow the index as books are saved.")
+    public void growTest() {
+        // When
+        // one in ten consecutive numbers has the right check digit
+        List<Book> books = LongStream.range(9780000000000L, 9780000001000L)
+                .mapToObj(String::valueOf)
+                .filter(Isbn::isValid)
+                .map(isbn -> repository.save(newBook(isbn)))
+                .collect(Collectors.toList());
+
+        // Then
+        assertThat(books)
+                .allSatisfy(book -> assertThat(index.find(book.getIsbn()))
+                        .isEqualTo(OptionalLong.of(book.getId())));
+    }
+
+    @Test
+    @DisplayName("Must reopen the index file, rebuilding it when books changed while it was closed.")
+    @SneakyThrows
+    public void reopenTest() {
+        // Given
+        Book saved = repository.save(newBook("9780132350884"));
+        index.destroy();
+
+        index.open();
+        OptionalLong reopened = index.find(saved.getIsbn());
+        index.destroy();
+
+        // When
+        Book savedWhileClosed = repository.save(newBook("9780201633610"));
+        index.open();
+
+        // Then
+        assertThat(reopened)
+                .isEqualTo(OptionalLong.of(saved.getId()));
+        assertThat(index.find(saved.getIsbn()))
+                .isEqualTo(OptionalLong.of(saved.getId()));
+        assertThat(index.find(savedWhileClosed.getIsbn()))
+                .isEqualTo(OptionalLong.of(savedWhileClosed.getId()));
+    }
+
+    @Test
+    @DisplayName("Must leave the index alone when deleting a book with an invalid ISBN, deleted slots aside.")
+    @SneakyThrows
+    public void deleteInvalidIsbnTest() {
+        // Given
+        // a fresh table of the initial capacity
+        index.destroy();
+        Files.delete(directory.resolve("isbn-index.bin"));
+        index.open();
+
+        Book kept = repository.save(newBook("9780132350884"));
+        // deleted from the very slot an invalid ISBN, packed as -1, is probed from
+        repository.delete(repository.save(newBook("9780000000156")));
+        Book legacy = repository.save(newBook("123"));
+
+        // When
+        repository.delete(legacy);
+
+        // Then
+        index.destroy();
+        int size = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("isbn-index.bin"))).getInt(16);
+        index.open();
+
+        assertThat(size)
+                .isEqualTo(1);
+        assertThat(index.find(kept.getIsbn()))
+                .isEqualTo(OptionalLong.of(kept.getId()));
+    }
+}
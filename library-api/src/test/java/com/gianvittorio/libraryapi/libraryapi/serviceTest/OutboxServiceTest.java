@@ -0,0 +1,147 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.dto.LoanEventDTO;
+import com.gianvittorio.libraryapi.libraryapi.model.entity.OutboxEvent;
+import com.gianvittorio.libraryapi.libraryapi.model.repository.OutboxEventRepository;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanEventConsumer;
+import com.gianvittorio.libraryapi.libraryapi.service.OutboxService;
+import com.gianvittorio.libraryapi.libraryapi.service.impl.OutboxServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "application.outbox.relay.interval=PT1H",
+        "application.outbox.relay.batch-size=2",
+        "application.outbox.relay.max-attempts=2"
+})
+@Import({OutboxServiceImpl.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class OutboxServiceTest {
+    @Autowired
+    OutboxService service;
+
+    @Autowired
+    OutboxEventRepository repository;
+
+    @MockBean
+    LoanEventConsumer consumer;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Must relay appended events in batches, oldest first, and then delete them.")
+    public void relayTest() {
+        // Given
+        service.append(Arrays.asList(
+                newEvent(LoanEventDTO.Type.LOAN_CREATED, 1l),
+                newEvent(LoanEventDTO.Type.LOAN_CREATED, 2l),
+                newEvent(LoanEventDTO.Type.LOAN_RETURNED, 1l)
+        ));
+
+        // When
+        int relayed = service.relay();
+
+        // Then
+        assertThat(relayed)
+                .isEqualTo(3);
+
+        ArgumentCaptor<List<LoanEventDTO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(consumer, times(2))
+                .consume(captor.capture());
+
+        assertThat(captor.getAllValues())
+                .extracting(List::size)
+                .containsExactly(2, 1);
+        assertThat(captor.getAllValues().get(0))
+                .extracting(LoanEventDTO::getType, LoanEventDTO::getLoanId, LoanEventDTO::getLoanDate)
+                .containsExactly(
+                        tuple(LoanEventDTO.Type.LOAN_CREATED, 1l, LocalDate.of(2020, 1, 1)),
+                        tuple(LoanEventDTO.Type.LOAN_CREATED, 2l, LocalDate.of(2020, 1, 1))
+                );
+        assertThat(captor.getAllValues().get(1).get(0).getEventId())
+                .isNotNull();
+
+        assertThat(repository.count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Must keep failed events for retry, until they run out of attempts.")
+    public void relayFailureTest() {
+        // Given
+        service.append(Collections.singletonList(newEvent(LoanEventDTO.Type.LOAN_CREATED, 1l)));
+
+        doThrow(new IllegalStateException("Consumer down"))
+                .when(consumer)
+                .consume(anyList());
+
+        // When
+        int firstAttempt = service.relay();
+        int secondAttempt = service.relay();
+        int thirdAttempt = service.relay();
+
+        // Then
+        assertThat(Arrays.asList(firstAttempt, secondAttempt, thirdAttempt))
+                .containsOnly(0);
+
+        verify(consumer, times(2))
+                .consume(anyList());
+
+        assertThat(repository.findAll())
+                .extracting(OutboxEvent::getAttempts, OutboxEvent::getLastError)
+                .containsExactly(tuple(2, "Consumer down"));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Must only append events within the transaction changing the loans.")
+    public void appendOutsideTransactionTest() {
+        // When
+        Throwable exception = catchThrowable(
+                () -> service.append(Collections.singletonList(newEvent(LoanEventDTO.Type.LOAN_CREATED, 1l)))
+        );
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    private static LoanEventDTO newEvent(LoanEventDTO.Type type, Long loanId) {
+        return LoanEventDTO.builder()
+                .type(type)
+                .loanId(loanId)
+                .isbn("123")
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2020, 1, 1))
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+}
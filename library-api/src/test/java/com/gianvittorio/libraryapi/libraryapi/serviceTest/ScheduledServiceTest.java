@@ -0,0 +1,109 @@
+package com.gianvittorio.libraryapi.libraryapi.serviceTest;
+
+import com.gianvittorio.libraryapi.libraryapi.model.repository.LateLoanEmail;
+import com.gianvittorio.libraryapi.libraryapi.service.EmailService;
+import com.gianvittorio.libraryapi.libraryapi.service.LoanService;
+import com.gianvittorio.libraryapi.libraryapi.service.ScheduledService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduledServiceTest {
+    private static final String MESSAGE = "Loan has expired";
+
+    private static final int CHUNK_SIZE = 2;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    MeterRegistry meterRegistry;
+
+    ScheduledService service;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ScheduledService(loanService, emailService, meterRegistry, MESSAGE, CHUNK_SIZE);
+    }
+
+    @Test
+    @DisplayName("Must notify late loaners chunk by chunk, resuming after the last loan id.")
+    public void sendEmailToLateLoanersInChunksTest() {
+        // Given
+        when(loanService.getLateLoanEmails(0l, CHUNK_SIZE))
+                .thenReturn(Arrays.asList(lateLoan(3l, "a@email.com"), lateLoan(5l, "b@email.com")));
+        when(loanService.getLateLoanEmails(5l, CHUNK_SIZE))
+                .thenReturn(Collections.singletonList(lateLoan(8l, "c@email.com")));
+
+        // When
+        service.sendEmailToLateLoaners();
+
+        // Then
+        verify(emailService)
+                .sendMail(Arrays.asList("a@email.com", "b@email.com"), MESSAGE);
+        verify(emailService)
+                .sendMail(Collections.singletonList("c@email.com"), MESSAGE);
+        verify(loanService, never())
+                .getLateLoanEmails(8l, CHUNK_SIZE);
+
+        assertThat(meterRegistry.get("library.lateloans.chunks").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("library.lateloans.notified").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("library.lateloans.chunk").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Must not send any e-mail whenever there are no late loans.")
+    public void sendEmailWithoutLateLoansTest() {
+        // Given
+        when(loanService.getLateLoanEmails(anyLong(), anyInt()))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        service.sendEmailToLateLoaners();
+
+        // Then
+        verify(emailService, never())
+                .sendMail(anyList(), anyString());
+
+        assertThat(meterRegistry.get("library.lateloans.notified").counter().count())
+                .isZero();
+    }
+
+    private static LateLoanEmail lateLoan(Long id, String customerEmail) {
+        return new LateLoanEmail() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return customerEmail;
+            }
+        };
+    }
+}